@@ -3,6 +3,8 @@ package ezrlc.Controller;
 import java.io.File;
 
 import ezrlc.Model.Model;
+import ezrlc.Model.ModelEventFilter;
+import ezrlc.Model.ModelListener;
 import ezrlc.Model.RectPlotNewMeasurement;
 import ezrlc.Model.SmithChartNewMeasurement;
 import ezrlc.ModelCalculation.MCOptions;
@@ -68,12 +70,44 @@ public class Controller {
 	}
 
 	/**
-	 * Forces the model to trigger a notify to the observers
+	 * Forces the model to trigger a notify to all subscribers
 	 */
 	public void manualNotify() {
 		model.manualNotify();
 	}
 
+	/**
+	 * Forces the model to notify the subscribers of a dataset
+	 * 
+	 * @param id
+	 *            dataset id
+	 */
+	public void notifyDataSet(int id) {
+		model.notifyDataSet(id);
+	}
+
+	/**
+	 * Subscribes a view to the events of the model
+	 * 
+	 * @param listener
+	 *            listener
+	 * @param filter
+	 *            filter selecting the events
+	 */
+	public void addModelListener(ModelListener listener, ModelEventFilter filter) {
+		model.getEventBus().subscribe(listener, filter);
+	}
+
+	/**
+	 * Removes the subscriptions of a view
+	 * 
+	 * @param listener
+	 *            listener
+	 */
+	public void removeModelListener(ModelListener listener) {
+		model.getEventBus().unsubscribe(listener);
+	}
+
 	/**
 	 * Adds a new Dataset in the model
 	 * 
@@ -113,6 +147,7 @@ public class Controller {
 	 */
 	public void deleteFigure(Figure figure) {
 		view.deleteFigure(figure);
+		removeModelListener(figure);
 		// delete all datasets in the model
 		for (int i = 0; i < figure.getDataSetIDs().length; i++) {
 			model.removeDataset(figure.getDataSetIDs()[i]);
@@ -37,12 +37,10 @@ public class EzRLC {
 
 				view.setController(controller);
 
+				// the panels subscribe to the model while building
 				view.build();
 				view.setVisible(true);
 
-				// Add observers
-				model.addObserver(view);
-
 				controller.contol();
 			}
 		});
@@ -1,6 +1,7 @@
 package ezrlc.Model;
 
-import ezrlc.util.Complex;
+import ezrlc.util.ComplexArrayView;
+import ezrlc.util.DoubleArrayView;
 
 /**
  * This class stores generated Datasets
@@ -13,9 +14,9 @@ public class DataSet {
 	// ================================================================================
 	// Private Data
 	// ================================================================================
-	private double[] y_data;
-	private Complex[] y_data_cpx;
-	private double[] x_data;
+	private DoubleArrayView y_data;
+	private ComplexArrayView y_data_cpx;
+	private DoubleArrayView x_data;
 
 	private boolean yDataComplex = false;
 
@@ -26,7 +27,7 @@ public class DataSet {
 	// Constructors
 	// ================================================================================
 	/**
-	 * Create new Dataset with double values
+	 * Create new Dataset with double values, the data is shared
 	 * 
 	 * @param x_data
 	 *            x data
@@ -34,18 +35,15 @@ public class DataSet {
 	 *            y data
 	 * @param nm nm
 	 */
-	public DataSet(double[] x_data, double[] y_data, RectPlotNewMeasurement nm) {
-		// Copy Data
-		this.y_data = new double[y_data.length];
-		System.arraycopy(y_data, 0, this.y_data, 0, y_data.length);
-		this.x_data = new double[x_data.length];
-		System.arraycopy(x_data, 0, this.x_data, 0, x_data.length);
+	public DataSet(DoubleArrayView x_data, DoubleArrayView y_data, RectPlotNewMeasurement nm) {
+		this.y_data = y_data;
+		this.x_data = x_data;
 		yDataComplex = false;
 		rnm = nm;
 	}
 
 	/**
-	 * Create new Dataset with complex y data
+	 * Create new Dataset with complex y data, the data is shared
 	 * 
 	 * @param x_data
 	 *            x data
@@ -53,12 +51,9 @@ public class DataSet {
 	 *            y data
 	 * @param nm nm
 	 */
-	public DataSet(double[] x_data, Complex[] y_data, SmithChartNewMeasurement nm) {
-		// Copy Data
-		this.y_data_cpx = new Complex[y_data.length];
-		System.arraycopy(y_data, 0, this.y_data_cpx, 0, y_data.length);
-		this.x_data = new double[x_data.length];
-		System.arraycopy(x_data, 0, this.x_data, 0, x_data.length);
+	public DataSet(DoubleArrayView x_data, ComplexArrayView y_data, SmithChartNewMeasurement nm) {
+		this.y_data_cpx = y_data;
+		this.x_data = x_data;
 		yDataComplex = true;
 		snm = nm;
 	}
@@ -67,29 +62,29 @@ public class DataSet {
 	// Public Functions
 	// ================================================================================
 	/**
-	 * Return a copy of the x data
+	 * Return the x data
 	 * 
-	 * @return double array
+	 * @return read only view
 	 */
-	public double[] getXData() {
+	public DoubleArrayView getXData() {
 		return this.x_data;
 	}
 
 	/**
-	 * Return a copy of the x data
+	 * Return the y data
 	 * 
-	 * @return double array
+	 * @return read only view
 	 */
-	public double[] getYData() {
+	public DoubleArrayView getYData() {
 		return this.y_data;
 	}
 
 	/**
-	 * Return a copy of the x data
+	 * Return the complex y data
 	 * 
-	 * @return complex array
+	 * @return read only view
 	 */
-	public Complex[] getYDataComplex() {
+	public ComplexArrayView getYDataComplex() {
 		return this.y_data_cpx;
 	}
 
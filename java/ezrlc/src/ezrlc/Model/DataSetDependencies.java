@@ -0,0 +1,104 @@
+package ezrlc.Model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores which datasets are calculated from which equivalent circuit, so a
+ * changed circuit only recomputes its own datasets. Model and compare datasets
+ * of rectangular plots and smith charts are registered alike.
+ * 
+ * @author noah
+ *
+ */
+public class DataSetDependencies {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	// dataset ids by equivalent circuit id
+	private Map<Integer, List<Integer>> dependents = new HashMap<Integer, List<Integer>>();
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	public DataSetDependencies() {
+	}
+
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Registers a dataset calculated from an equivalent circuit
+	 * 
+	 * @param eqcID
+	 *            id of the equivalent circuit
+	 * @param dataSetID
+	 *            id of the dataset
+	 */
+	public synchronized void add(int eqcID, int dataSetID) {
+		List<Integer> lst = dependents.get(eqcID);
+		if (lst == null) {
+			lst = new ArrayList<Integer>();
+			dependents.put(eqcID, lst);
+		}
+		if (lst.contains(dataSetID) == false) {
+			lst.add(dataSetID);
+		}
+	}
+
+	/**
+	 * Returns the datasets calculated from an equivalent circuit
+	 * 
+	 * @param eqcID
+	 *            id of the equivalent circuit
+	 * @return dataset ids, empty if there are none
+	 */
+	public synchronized List<Integer> getDependents(int eqcID) {
+		List<Integer> lst = dependents.get(eqcID);
+		return (lst == null) ? new ArrayList<Integer>() : new ArrayList<Integer>(lst);
+	}
+
+	/**
+	 * Returns the datasets calculated from any equivalent circuit
+	 * 
+	 * @return dataset ids
+	 */
+	public synchronized List<Integer> getAllDependents() {
+		List<Integer> res = new ArrayList<Integer>();
+		for (List<Integer> lst : dependents.values()) {
+			res.addAll(lst);
+		}
+		return res;
+	}
+
+	/**
+	 * Removes a dataset from the graph
+	 * 
+	 * @param dataSetID
+	 *            id of the dataset
+	 */
+	public synchronized void removeDataSet(int dataSetID) {
+		for (Iterator<List<Integer>> iter = dependents.values().iterator(); iter.hasNext();) {
+			List<Integer> lst = iter.next();
+			lst.remove(Integer.valueOf(dataSetID));
+			if (lst.isEmpty()) {
+				iter.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes an equivalent circuit and its edges from the graph
+	 * 
+	 * @param eqcID
+	 *            id of the equivalent circuit
+	 */
+	public synchronized void removeEqCircuit(int eqcID) {
+		dependents.remove(eqcID);
+	}
+
+}
@@ -0,0 +1,97 @@
+package ezrlc.Model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import ezrlc.ModelCalculation.MCEqCircuit;
+import ezrlc.RFData.RFData;
+import ezrlc.util.Complex;
+
+/**
+ * Evaluates the equivalent circuits of the model for their datasets. Each
+ * circuit is evaluated on a private copy that is kept between evaluations and
+ * only takes over the parameters, so a parameter edit on the event dispatch
+ * thread can not change the circuit in the middle of an evaluation. The
+ * impedance is stored with the parameters it was calculated from, all
+ * datasets of a circuit share one evaluation as long as the parameters stay
+ * the same.
+ * 
+ * @author noah
+ *
+ */
+public class EqCircuitWorkspace {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	/**
+	 * Private copy of a circuit and its last evaluation
+	 */
+	private static class Entry {
+		MCEqCircuit copy;
+		double[] parameters;
+		Complex[] z;
+	}
+
+	// entries of removed circuits are dropped with the circuit
+	private Map<MCEqCircuit, Entry> entries = new WeakHashMap<MCEqCircuit, Entry>();
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	public EqCircuitWorkspace() {
+	}
+
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Returns the impedance parameters of the circuit, calculated only if the
+	 * parameters changed since the last call
+	 * 
+	 * @param eqc
+	 *            equivalent circuit of the model
+	 * @return impedance parameters, shared with later calls
+	 */
+	public synchronized Complex[] getZ(MCEqCircuit eqc) {
+		double[] p = eqc.getParameters();
+		Entry e = entries.get(eqc);
+		if (e == null || e.copy.getWSize() != eqc.getWSize()) {
+			e = new Entry();
+			e.copy = eqc.copy();
+			entries.put(eqc, e);
+		} else if (Arrays.equals(e.parameters, p)) {
+			return e.z;
+		}
+		e.copy.setParameters(p);
+		e.z = e.copy.getZ();
+		e.parameters = p;
+		return e.z;
+	}
+
+	/**
+	 * Returns the scattering parameters of the circuit
+	 * 
+	 * @param eqc
+	 *            equivalent circuit of the model
+	 * @param zref
+	 *            reference resistance
+	 * @return scattering parameters
+	 */
+	public Complex[] getS(MCEqCircuit eqc, double zref) {
+		return RFData.z2s(zref, getZ(eqc));
+	}
+
+	/**
+	 * Returns the admittance parameters of the circuit
+	 * 
+	 * @param eqc
+	 *            equivalent circuit of the model
+	 * @return admittance parameters
+	 */
+	public Complex[] getY(MCEqCircuit eqc) {
+		return RFData.z2y(getZ(eqc));
+	}
+
+}
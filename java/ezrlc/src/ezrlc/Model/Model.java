@@ -3,19 +3,28 @@ package ezrlc.Model;
 import java.io.File;
 import java.lang.Thread.State;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Observable;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
 
 import ezrlc.Model.RectPlotNewMeasurement.Unit;
 import ezrlc.ModelCalculation.MCEqCircuit;
+import ezrlc.ModelCalculation.MCFitCache;
 import ezrlc.ModelCalculation.MCOptions;
 import ezrlc.ModelCalculation.MCUtil;
 import ezrlc.ModelCalculation.MCWorker;
 import ezrlc.ModelCalculation.MCWorker.WorkerMode;
 import ezrlc.RFData.RFData;
 import ezrlc.RFData.RFData.MeasurementType;
-import ezrlc.util.Complex;
+import ezrlc.util.ComplexArrayView;
 import ezrlc.util.DataSource;
+import ezrlc.util.DoubleArrayView;
 import ezrlc.util.MathUtil;
 
 /**
@@ -24,13 +33,13 @@ import ezrlc.util.MathUtil;
  * @author noah
  *
  */
-public class Model extends Observable {
+public class Model {
 
 	// ================================================================================
 	// Public Data
 	// ================================================================================
 	public enum UpdateEvent {
-		MANUAL, FILE, NEW_EQC, REMOVE_EQC, CHANGE_EQC
+		MANUAL, FILE, NEW_EQC, REMOVE_EQC, CHANGE_EQC, DATASET, REMOVE_DATASET, WORKER_FAILED
 	};
 
 	// ================================================================================
@@ -38,17 +47,46 @@ public class Model extends Observable {
 	// ================================================================================
 	private RFData rfDataFile;
 
-	private List<DataSet> dataSets = new ArrayList<DataSet>();
-
-	private List<MCEqCircuit> eqCircuits = new ArrayList<MCEqCircuit>();
-
-	// Stores the plotDataSetList ids to the corresponding model id
-	private List<Integer[]> eqCircuitRectPlotIDs = new ArrayList<Integer[]>();
-	private List<Integer[]> eqCircuitSmithPlotIDs = new ArrayList<Integer[]>();
+	private ModelEventBus eventBus = new ModelEventBus(this);
+
+	// datasets and circuits are read by the recompute thread
+	private List<DataSet> dataSets = Collections.synchronizedList(new ArrayList<DataSet>());
+
+	private List<MCEqCircuit> eqCircuits = Collections.synchronizedList(new ArrayList<MCEqCircuit>());
+
+	// Stores the dataset ids calculated from each model id
+	private DataSetDependencies dependencies = new DataSetDependencies();
+
+	// Evaluates the circuits once per parameter set for all their datasets
+	private EqCircuitWorkspace workspace = new EqCircuitWorkspace();
+
+	// Circuits changed since the last recompute, a running recompute picks up
+	// changes made in the meantime
+	private Set<Integer> pendingEqcIDs = new LinkedHashSet<Integer>();
+	private boolean recomputeScheduled = false;
+	// Measurement of the pending circuits, captured by the scheduling thread
+	private RFData pendingRFData;
+	// Recomputed datasets not yet published, at most one DATASET event waits
+	// on the event dispatch thread and publishes all of them
+	private Set<Integer> unpublishedDataSetIDs = new LinkedHashSet<Integer>();
+	private ExecutorService recomputeExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "Model-Recompute");
+			t.setDaemon(true);
+			return t;
+		}
+	});
 
 	MCWorker worker;
 
+	// Results of previous fits, persisted if the property ezrlc.fitcache
+	// names a file
+	private MCFitCache fitCache;
+
 	public Model() {
+		String cacheFile = System.getProperty("ezrlc.fitcache");
+		fitCache = new MCFitCache(64, (cacheFile != null) ? new File(cacheFile) : null);
 	}
 
 	// ================================================================================
@@ -59,43 +97,46 @@ public class Model extends Observable {
 	 * 
 	 * @param nm
 	 *            RectPlotNewMeasurement
+	 * @param rfData
+	 *            measurement, captured by the thread that requested the
+	 *            dataset
 	 * @return DataSet
 	 */
-	private DataSet buildDataSetRaw(RectPlotNewMeasurement nm) {
-		Complex[] data = null;
-		Complex[] datacomp = null;
+	private DataSet buildDataSetRaw(RectPlotNewMeasurement nm, RFData rfData) {
+		ComplexArrayView data = null;
+		ComplexArrayView datacomp = null;
 		double[] outdata = null;
 		// Get Data
 
 		if (nm.src == DataSource.FILE) {
-			outdata = new double[rfDataFile.size()];
+			outdata = new double[rfData.size()];
 			switch (nm.type) {
 			case S:
-				data = this.rfDataFile.getSData(nm.zRef);
+				data = new ComplexArrayView(rfData.getSData(nm.zRef));
 				break;
 			case Z:
-				data = this.rfDataFile.getzData();
+				data = rfData.getzDataView();
 				break;
 			case Y:
-				data = this.rfDataFile.getyData();
+				data = rfData.getyDataView();
 				break;
 			case Rs:
-				outdata = RFData.z2Rs(this.rfDataFile.getzData());
+				outdata = RFData.z2Rs(rfData.getzDataView());
 				break;
 			case Rp:
-				outdata = RFData.y2Rp(this.rfDataFile.getyData());
+				outdata = RFData.y2Rp(rfData.getyDataView());
 				break;
 			case Ls:
-				outdata = RFData.z2Ls(this.rfDataFile.getzData(), rfDataFile.getfData());
+				outdata = RFData.z2Ls(rfData.getzDataView(), rfData.getfDataView());
 				break;
 			case Lp:
-				outdata = RFData.y2Lp(this.rfDataFile.getyData(), rfDataFile.getfData());
+				outdata = RFData.y2Lp(rfData.getyDataView(), rfData.getfDataView());
 				break;
 			case Cs:
-				outdata = RFData.z2Cs(this.rfDataFile.getzData(), rfDataFile.getfData());
+				outdata = RFData.z2Cs(rfData.getzDataView(), rfData.getfDataView());
 				break;
 			case Cp:
-				outdata = RFData.y2Cp(this.rfDataFile.getyData(), rfDataFile.getfData());
+				outdata = RFData.y2Cp(rfData.getyDataView(), rfData.getfDataView());
 				break;
 			default:
 				break;
@@ -104,13 +145,13 @@ public class Model extends Observable {
 			outdata = new double[eqCircuits.get(nm.eqCircuitID).getWSize()];
 			switch (nm.type) {
 			case S:
-				data = eqCircuits.get(nm.eqCircuitID).getS(nm.zRef);
+				data = new ComplexArrayView(workspace.getS(eqCircuits.get(nm.eqCircuitID), nm.zRef));
 				break;
 			case Y:
-				data = eqCircuits.get(nm.eqCircuitID).getY();
+				data = new ComplexArrayView(workspace.getY(eqCircuits.get(nm.eqCircuitID)));
 				break;
 			case Z:
-				data = eqCircuits.get(nm.eqCircuitID).getZ();
+				data = new ComplexArrayView(workspace.getZ(eqCircuits.get(nm.eqCircuitID)));
 				break;
 			default:
 				break;
@@ -119,16 +160,16 @@ public class Model extends Observable {
 			outdata = new double[eqCircuits.get(nm.eqCircuitID).getWSize()];
 			switch (nm.type) {
 			case S:
-				data = eqCircuits.get(nm.eqCircuitID).getS(nm.zRef);
-				datacomp = this.rfDataFile.getSData(nm.zRef);
+				data = new ComplexArrayView(workspace.getS(eqCircuits.get(nm.eqCircuitID), nm.zRef));
+				datacomp = new ComplexArrayView(rfData.getSData(nm.zRef));
 				break;
 			case Y:
-				data = eqCircuits.get(nm.eqCircuitID).getY();
-				datacomp = this.rfDataFile.getyData();
+				data = new ComplexArrayView(workspace.getY(eqCircuits.get(nm.eqCircuitID)));
+				datacomp = rfData.getyDataView();
 				break;
 			case Z:
-				data = eqCircuits.get(nm.eqCircuitID).getZ();
-				datacomp = this.rfDataFile.getzData();
+				data = new ComplexArrayView(workspace.getZ(eqCircuits.get(nm.eqCircuitID)));
+				datacomp = rfData.getzDataView();
 				break;
 			default:
 				break;
@@ -138,30 +179,30 @@ public class Model extends Observable {
 
 		// Convert to Complex Modifier
 		if (nm.type == MeasurementType.S || nm.type == MeasurementType.Y || nm.type == MeasurementType.Z) {
-			outdata = new double[data.length];
+			outdata = new double[data.length()];
 			switch (nm.cpxMod) {
 			case REAL:
 				// Extract real part
-				for (int i = 0; i < data.length; i++) {
-					outdata[i] = data[i].re();
+				for (int i = 0; i < data.length(); i++) {
+					outdata[i] = data.get(i).re();
 				}
 				break;
 			case IMAG:
 				// Extract imaginary part
-				for (int i = 0; i < data.length; i++) {
-					outdata[i] = data[i].im();
+				for (int i = 0; i < data.length(); i++) {
+					outdata[i] = data.get(i).im();
 				}
 				break;
 			case MAG:
 				// Extract magnitude
-				for (int i = 0; i < data.length; i++) {
-					outdata[i] = data[i].abs();
+				for (int i = 0; i < data.length(); i++) {
+					outdata[i] = data.get(i).abs();
 				}
 				break;
 			case ANGLE:
 				// Extract angle
-				for (int i = 0; i < data.length; i++) {
-					outdata[i] = data[i].angle();
+				for (int i = 0; i < data.length(); i++) {
+					outdata[i] = data.get(i).angle();
 				}
 				break;
 			default:
@@ -171,30 +212,30 @@ public class Model extends Observable {
 
 		// If compare
 		if (nm.src == DataSource.COMPARE) {
-			double[] outdatacompare = new double[datacomp.length];
+			double[] outdatacompare = new double[datacomp.length()];
 			switch (nm.cpxMod) {
 			case REAL:
 				// Extract real part
-				for (int i = 0; i < datacomp.length; i++) {
-					outdatacompare[i] = datacomp[i].re();
+				for (int i = 0; i < datacomp.length(); i++) {
+					outdatacompare[i] = datacomp.get(i).re();
 				}
 				break;
 			case IMAG:
 				// Extract imaginary part
-				for (int i = 0; i < datacomp.length; i++) {
-					outdatacompare[i] = datacomp[i].im();
+				for (int i = 0; i < datacomp.length(); i++) {
+					outdatacompare[i] = datacomp.get(i).im();
 				}
 				break;
 			case MAG:
 				// Extract magnitude
-				for (int i = 0; i < datacomp.length; i++) {
-					outdatacompare[i] = datacomp[i].abs();
+				for (int i = 0; i < datacomp.length(); i++) {
+					outdatacompare[i] = datacomp.get(i).abs();
 				}
 				break;
 			case ANGLE:
 				// Extract angle
-				for (int i = 0; i < datacomp.length; i++) {
-					outdatacompare[i] = datacomp[i].angle();
+				for (int i = 0; i < datacomp.length(); i++) {
+					outdatacompare[i] = datacomp.get(i).angle();
 				}
 				break;
 			default:
@@ -204,7 +245,7 @@ public class Model extends Observable {
 			// outdata: model
 			// outdatacompare: File
 			int size = outdata.length;
-			int filestartidx = MCUtil.getFirstFIndex(eqCircuits.get(nm.eqCircuitID).getOps(), rfDataFile.getfData());
+			int filestartidx = MCUtil.getFirstFIndex(eqCircuits.get(nm.eqCircuitID).getOps(), rfData.getfDataView());
 			double[] diff = new double[size];
 			for (int i = 0; i < size; i++) {
 				diff[i] = Math.abs(outdata[i] - outdatacompare[i + filestartidx]);
@@ -218,14 +259,14 @@ public class Model extends Observable {
 			outdata = diff;
 		}
 
-		double[] xdata = null;
+		DoubleArrayView xdata = null;
 		if (nm.src == DataSource.FILE)
-			xdata = rfDataFile.getfData();
+			xdata = rfData.getfDataView();
 		if (nm.src == DataSource.MODEL || nm.src == DataSource.COMPARE)
-			xdata = eqCircuits.get(nm.eqCircuitID).getF();
+			xdata = new DoubleArrayView(eqCircuits.get(nm.eqCircuitID).getF());
 
 		// Now create the dataset and add it to the dataset list
-		DataSet dataSet = new DataSet(xdata, outdata, nm);
+		DataSet dataSet = new DataSet(xdata, new DoubleArrayView(outdata), nm);
 		return dataSet;
 	}
 
@@ -237,19 +278,15 @@ public class Model extends Observable {
 	 * @return id to access the dataset
 	 */
 	private int buildDataSet(RectPlotNewMeasurement nm) {
-		DataSet dataSet = buildDataSetRaw(nm);
+		DataSet dataSet = buildDataSetRaw(nm, rfDataFile);
 		this.dataSets.add(dataSet);
 
 		// Return the number in the list
 		int id = this.dataSets.size() - 1;
 
-		// save id in list to associate it to its source
-		if (nm.src == DataSource.MODEL) {
-			Integer[] lst = eqCircuitRectPlotIDs.get(nm.eqCircuitID);
-			Integer[] newlst = new Integer[lst.length + 1];
-			System.arraycopy(lst, 0, newlst, 0, lst.length);
-			newlst[lst.length] = id;
-			eqCircuitRectPlotIDs.set(nm.eqCircuitID, newlst);
+		// save id in the graph to associate it to its source
+		if (nm.src == DataSource.MODEL || nm.src == DataSource.COMPARE) {
+			dependencies.add(nm.eqCircuitID, id);
 		}
 
 		return id;
@@ -260,18 +297,21 @@ public class Model extends Observable {
 	 * 
 	 * @param nm
 	 *            SmithChartNewMeasurement
+	 * @param rfData
+	 *            measurement, captured by the thread that requested the
+	 *            dataset
 	 * @return DataSet
 	 */
-	private DataSet buildSmithChartDataSetRaw(SmithChartNewMeasurement nm) {
-		Complex[] data = null;
+	private DataSet buildSmithChartDataSetRaw(SmithChartNewMeasurement nm, RFData rfData) {
+		ComplexArrayView data = null;
 		DataSet set = null;
 		// Get Data
 		if (nm.src == DataSource.FILE) {
-			data = rfDataFile.getzData();
-			set = new DataSet(rfDataFile.getfData(), data, nm);
+			data = rfData.getzDataView();
+			set = new DataSet(rfData.getfDataView(), data, nm);
 		} else if (nm.src == DataSource.MODEL) {
-			data = eqCircuits.get(nm.eqCircuitID).getZ();
-			set = new DataSet(eqCircuits.get(nm.eqCircuitID).getF(), data, nm);
+			data = new ComplexArrayView(workspace.getZ(eqCircuits.get(nm.eqCircuitID)));
+			set = new DataSet(new DoubleArrayView(eqCircuits.get(nm.eqCircuitID).getF()), data, nm);
 		}
 		return set;
 	}
@@ -284,7 +324,7 @@ public class Model extends Observable {
 	 * @return ID in the list of smith chart datasets
 	 */
 	private int buildSmithChartDataSet(SmithChartNewMeasurement nm) {
-		DataSet set = buildSmithChartDataSetRaw(nm);
+		DataSet set = buildSmithChartDataSetRaw(nm, rfDataFile);
 
 		// Create set
 		this.dataSets.add(set);
@@ -292,12 +332,8 @@ public class Model extends Observable {
 		int id = this.dataSets.size() - 1;
 
 		if (nm.src == DataSource.MODEL) {
-			// save id in list to associate it to its source
-			Integer[] lst = eqCircuitSmithPlotIDs.get(nm.eqCircuitID);
-			Integer[] newlst = new Integer[lst.length + 1];
-			System.arraycopy(lst, 0, newlst, 0, lst.length);
-			newlst[lst.length] = id;
-			eqCircuitSmithPlotIDs.set(nm.eqCircuitID, newlst);
+			// save id in the graph to associate it to its source
+			dependencies.add(nm.eqCircuitID, id);
 		}
 
 		return id;
@@ -344,12 +380,29 @@ public class Model extends Observable {
 	}
 
 	/**
-	 * Triggers a notify to the observers
+	 * Returns the event bus the views subscribe to
+	 * 
+	 * @return event bus
+	 */
+	public ModelEventBus getEventBus() {
+		return eventBus;
+	}
+
+	/**
+	 * Triggers a notify to all subscribers
 	 */
 	public void manualNotify() {
-		// mark as value changed
-		setChanged();
-		notifyObservers(UpdateEvent.MANUAL);
+		eventBus.publish(new ModelEvent(UpdateEvent.MANUAL));
+	}
+
+	/**
+	 * Notifies the subscribers of a dataset, e.g. after it was added to a plot
+	 * 
+	 * @param id
+	 *            dataset id
+	 */
+	public void notifyDataSet(int id) {
+		eventBus.publish(new ModelEvent(UpdateEvent.DATASET, -1, new int[] { id }));
 	}
 
 	/**
@@ -401,8 +454,8 @@ public class Model extends Observable {
 	 */
 	public void removeDataset(int id) {
 		dataSets.set(id, null);
-		this.setChanged();
-		this.notifyObservers();
+		dependencies.removeDataSet(id);
+		eventBus.publish(new ModelEvent(UpdateEvent.REMOVE_DATASET, -1, new int[] { id }));
 	}
 
 	/**
@@ -412,6 +465,13 @@ public class Model extends Observable {
 	 *            ops
 	 */
 	public void createEqCircuit(MCOptions ops) {
+		// Same data and options fitted before, no worker needed
+		MCEqCircuit cached = fitCache.get(rfDataFile, ops);
+		if (cached != null) {
+			worker = null;
+			addEqCircuit(cached);
+			return;
+		}
 		// Create worker, set data and start it
 		worker = new MCWorker(this, "MCWorker-1");
 		worker.setMCOptions(ops);
@@ -433,6 +493,8 @@ public class Model extends Observable {
 	 * @return status
 	 */
 	public State getWorkerStatus() {
+		if (worker == null)
+			return State.TERMINATED;
 		return worker.getState();
 	}
 
@@ -452,23 +514,62 @@ public class Model extends Observable {
 	 *            Equivalent circuit that was generated
 	 * @param mode
 	 *            mode
+	 * @param fitted
+	 *            data the worker fitted, the loaded file may have changed
+	 *            in the meantime
 	 */
-	public void mcWorkerSuccess(MCEqCircuit eqc, MCWorker.WorkerMode mode) {
+	public void mcWorkerSuccess(MCEqCircuit eqc, MCWorker.WorkerMode mode, RFData fitted) {
 		if (mode == WorkerMode.NORMAL) {
-			eqCircuits.add(eqc);
-			eqCircuitRectPlotIDs.add(new Integer[] {});
-			eqCircuitSmithPlotIDs.add(new Integer[] {});
-			setChanged();
-			notifyObservers(UpdateEvent.NEW_EQC);
+			fitCache.put(fitted, eqc.getOps(), eqc);
+			addEqCircuit(eqc);
 		} else if (mode == WorkerMode.OPT_ONLY) {
-			// update plots
-			for (int i = 0; i < dataSets.size(); i++) {
-				if (dataSets.get(i) != null)
-					updateDataset(i);
-			}
-			setChanged();
-			notifyObservers(UpdateEvent.CHANGE_EQC);
+			int eqcID = eqCircuits.indexOf(eqc);
+			// the circuit was deleted while it was optimized, -1 would
+			// recompute all circuits
+			if (eqcID < 0)
+				return;
+			eventBus.publish(new ModelEvent(UpdateEvent.CHANGE_EQC, eqcID));
+			// update the plots of the optimized circuit
+			scheduleRecompute(eqcID, fitted);
+		}
+	}
+
+	/**
+	 * Gets called if the MCWorker fails. Publishes a WORKER_FAILED event for
+	 * the optimized circuit, -1 if a new circuit was calculated.
+	 * 
+	 * @param eqc
+	 *            circuit that was optimized, null for a new circuit
+	 * @param mode
+	 *            mode
+	 * @param fitted
+	 *            data the worker fitted
+	 * @param cause
+	 *            exception the calculation failed with
+	 */
+	public void mcWorkerFailed(MCEqCircuit eqc, MCWorker.WorkerMode mode, RFData fitted, Throwable cause) {
+		System.err.println("Error in model calculation: " + cause);
+		int eqcID = -1;
+		if (mode == WorkerMode.OPT_ONLY) {
+			eqcID = eqCircuits.indexOf(eqc);
+			// the circuit was deleted while it was optimized
+			if (eqcID < 0)
+				return;
+			// the fit may have changed the parameters before it failed
+			scheduleRecompute(eqcID, fitted);
 		}
+		eventBus.publish(new ModelEvent(UpdateEvent.WORKER_FAILED, eqcID));
+	}
+
+	/**
+	 * Adds a new equivalent circuit and notifies the subscribers
+	 * 
+	 * @param eqc
+	 *            Equivalent circuit
+	 */
+	private void addEqCircuit(MCEqCircuit eqc) {
+		eqCircuits.add(eqc);
+		eventBus.publish(new ModelEvent(UpdateEvent.NEW_EQC, eqCircuits.size() - 1));
 	}
 
 	/**
@@ -510,8 +611,8 @@ public class Model extends Observable {
 	public void removeEqCircuit(int eqcID) {
 		if (eqcID < eqCircuits.size())
 			this.eqCircuits.set(eqcID, null);
-		setChanged();
-		notifyObservers(UpdateEvent.REMOVE_EQC);
+		dependencies.removeEqCircuit(eqcID);
+		eventBus.publish(new ModelEvent(UpdateEvent.REMOVE_EQC, eqcID));
 	}
 
 	/**
@@ -542,12 +643,96 @@ public class Model extends Observable {
 	 */
 	public void updateEqcParams(int eqcID, double[] parameters) {
 		eqCircuits.get(eqcID).setParameters(parameters);
+		eventBus.publish(new ModelEvent(UpdateEvent.CHANGE_EQC, eqcID));
 		// update the associated plots
-		for (int i = 0; i < dataSets.size(); i++) {
-			updateDataset(i);
+		scheduleRecompute(eqcID, rfDataFile);
+	}
+
+	/**
+	 * Marks the datasets of an equivalent circuit for recomputation. They are
+	 * recomputed on the recompute thread, changes arriving in the meantime are
+	 * coalesced into the next pass. Subscribers get a DATASET event on the event
+	 * dispatch thread once the datasets are up to date.
+	 * 
+	 * @param eqcID
+	 *            id of the changed circuit, -1 for all circuits
+	 * @param rfData
+	 *            measurement the datasets compare against, read by the
+	 *            calling thread
+	 */
+	private void scheduleRecompute(int eqcID, RFData rfData) {
+		synchronized (pendingEqcIDs) {
+			pendingEqcIDs.add(eqcID);
+			pendingRFData = rfData;
+			if (recomputeScheduled)
+				return;
+			recomputeScheduled = true;
+		}
+		recomputeExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				recompute();
+			}
+		});
+	}
+
+	/**
+	 * Recomputes the datasets of all pending circuits until none is left
+	 */
+	private void recompute() {
+		while (true) {
+			List<Integer> ids = new ArrayList<Integer>();
+			RFData rfData;
+			synchronized (pendingEqcIDs) {
+				if (pendingEqcIDs.isEmpty()) {
+					recomputeScheduled = false;
+					return;
+				}
+				for (Integer eqcID : pendingEqcIDs) {
+					for (Integer id : (eqcID < 0) ? dependencies.getAllDependents() : dependencies.getDependents(eqcID)) {
+						if (ids.contains(id) == false)
+							ids.add(id);
+					}
+				}
+				pendingEqcIDs.clear();
+				rfData = pendingRFData;
+			}
+			for (Integer id : ids) {
+				try {
+					updateDataset(id, rfData);
+				} catch (RuntimeException e) {
+					System.err.println("Error in recomputing dataset " + id + ": " + e.getMessage());
+				}
+			}
+			synchronized (unpublishedDataSetIDs) {
+				boolean pending = unpublishedDataSetIDs.isEmpty() == false;
+				unpublishedDataSetIDs.addAll(ids);
+				if (pending || unpublishedDataSetIDs.isEmpty())
+					continue;
+			}
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					publishDataSets();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Publishes a DATASET event with the recomputed datasets
+	 */
+	private void publishDataSets() {
+		int[] ids;
+		synchronized (unpublishedDataSetIDs) {
+			ids = new int[unpublishedDataSetIDs.size()];
+			int i = 0;
+			for (Integer id : unpublishedDataSetIDs) {
+				ids[i++] = id;
+			}
+			unpublishedDataSetIDs.clear();
 		}
-		setChanged();
-		notifyObservers(UpdateEvent.CHANGE_EQC);
+		eventBus.publish(new ModelEvent(UpdateEvent.DATASET, -1, ids));
 	}
 
 	/**
@@ -555,20 +740,25 @@ public class Model extends Observable {
 	 * 
 	 * @param i
 	 *            id to the dataset
+	 * @param rfData
+	 *            measurement the recompute was scheduled with
 	 */
-	private void updateDataset(Integer i) {
-		if (dataSets.get(i) == null)
+	private void updateDataset(Integer i, RFData rfData) {
+		DataSet old = dataSets.get(i);
+		if (old == null)
 			return;
-		if (dataSets.get(i).isRectPlotDataSet()) {
-			if (dataSets.get(i) != null && dataSets.get(i).getRNM().src != DataSource.FILE) {
-				RectPlotNewMeasurement nm = dataSets.get(i).getRNM();
-				dataSets.set(i, buildDataSetRaw(nm));
-			}
+		DataSet set = null;
+		if (old.isRectPlotDataSet()) {
+			if (old.getRNM().src != DataSource.FILE)
+				set = buildDataSetRaw(old.getRNM(), rfData);
 		} else {
-			if (dataSets.get(i) != null && dataSets.get(i).getSNM().src != DataSource.FILE) {
-				SmithChartNewMeasurement nm = dataSets.get(i).getSNM();
-				dataSets.set(i, buildSmithChartDataSetRaw(nm));
-			}
+			if (old.getSNM().src != DataSource.FILE)
+				set = buildSmithChartDataSetRaw(old.getSNM(), rfData);
+		}
+		// skip if the dataset was removed in the meantime
+		synchronized (dataSets) {
+			if (set != null && dataSets.get(i) == old)
+				dataSets.set(i, set);
 		}
 	}
 
@@ -589,7 +779,8 @@ public class Model extends Observable {
 	 * Stops the worker and deletes all eqc related data
 	 */
 	public void killWorker() {
-		worker.stopWork();
+		if (worker != null)
+			worker.stopWork();
 		worker = null;
 	}
 
@@ -0,0 +1,130 @@
+package ezrlc.Model;
+
+import java.util.Arrays;
+
+import ezrlc.Model.Model.UpdateEvent;
+
+/**
+ * Event published by the model. Besides its type it names the equivalent
+ * circuit and the datasets it is about, so a subscriber can ignore events of
+ * circuits and datasets it does not show.
+ * 
+ * @author noah
+ *
+ */
+public class ModelEvent {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private final UpdateEvent type;
+	private final int eqcID;
+	private final int[] dataSetIDs;
+
+	// ================================================================================
+	// Constructors
+	// ================================================================================
+	/**
+	 * Creates an event about the whole model
+	 * 
+	 * @param type
+	 *            event type
+	 */
+	public ModelEvent(UpdateEvent type) {
+		this(type, -1, null);
+	}
+
+	/**
+	 * Creates an event about an equivalent circuit
+	 * 
+	 * @param type
+	 *            event type
+	 * @param eqcID
+	 *            id of the circuit
+	 */
+	public ModelEvent(UpdateEvent type, int eqcID) {
+		this(type, eqcID, null);
+	}
+
+	/**
+	 * Creates an event about datasets
+	 * 
+	 * @param type
+	 *            event type
+	 * @param eqcID
+	 *            id of the circuit, -1 if none or several
+	 * @param dataSetIDs
+	 *            ids of the datasets, null for all datasets
+	 */
+	public ModelEvent(UpdateEvent type, int eqcID, int[] dataSetIDs) {
+		this.type = type;
+		this.eqcID = eqcID;
+		this.dataSetIDs = (dataSetIDs == null) ? null : dataSetIDs.clone();
+	}
+
+	// ================================================================================
+	// Getter and Setter Functions
+	// ================================================================================
+	public UpdateEvent getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the id of the equivalent circuit of the event
+	 * 
+	 * @return circuit id, -1 if none or several
+	 */
+	public int getEqcID() {
+		return eqcID;
+	}
+
+	/**
+	 * Returns the ids of the datasets of the event
+	 * 
+	 * @return dataset ids, null for all datasets
+	 */
+	public int[] getDataSetIDs() {
+		return (dataSetIDs == null) ? null : dataSetIDs.clone();
+	}
+
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Checks if the event concerns a dataset
+	 * 
+	 * @param id
+	 *            dataset id
+	 * @return true if the event names the dataset or all datasets
+	 */
+	public boolean concernsDataSet(int id) {
+		if (dataSetIDs == null)
+			return true;
+		for (int i : dataSetIDs) {
+			if (i == id)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the event concerns any of the datasets
+	 * 
+	 * @param ids
+	 *            dataset ids
+	 * @return true if the event names one of the datasets or all datasets
+	 */
+	public boolean concernsAnyDataSet(int[] ids) {
+		for (int id : ids) {
+			if (concernsDataSet(id))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return type + " eqc " + eqcID + " datasets " + ((dataSetIDs == null) ? "all" : Arrays.toString(dataSetIDs));
+	}
+
+}
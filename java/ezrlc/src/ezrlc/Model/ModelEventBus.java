@@ -0,0 +1,149 @@
+package ezrlc.Model;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.swing.SwingUtilities;
+
+import ezrlc.Model.Model.UpdateEvent;
+
+/**
+ * Delivers the events of the model to its subscribers. Every subscriber
+ * registers with a filter and is only notified of the events it accepts, so
+ * a change of one circuit only reaches the views showing it. Listeners are
+ * always called on the event dispatch thread, events published on other
+ * threads are handed over to it.
+ * 
+ * @author noah
+ *
+ */
+public class ModelEventBus {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	/**
+	 * Listener with its filter
+	 */
+	private static class Subscription {
+		final ModelListener listener;
+		final ModelEventFilter filter;
+
+		Subscription(ModelListener listener, ModelEventFilter filter) {
+			this.listener = listener;
+			this.filter = filter;
+		}
+	}
+
+	private final Model model;
+
+	// subscribing in a listener does not disturb a running dispatch
+	private List<Subscription> subscriptions = new CopyOnWriteArrayList<Subscription>();
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	/**
+	 * Creates the event bus of a model
+	 * 
+	 * @param model
+	 *            model passed to the listeners
+	 */
+	public ModelEventBus(Model model) {
+		this.model = model;
+	}
+
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Returns a filter accepting the events of the given types
+	 * 
+	 * @param first
+	 *            event type
+	 * @param rest
+	 *            further event types
+	 * @return filter
+	 */
+	public static ModelEventFilter types(UpdateEvent first, UpdateEvent... rest) {
+		final EnumSet<UpdateEvent> set = EnumSet.of(first, rest);
+		return new ModelEventFilter() {
+			@Override
+			public boolean accept(ModelEvent event) {
+				return set.contains(event.getType());
+			}
+		};
+	}
+
+	/**
+	 * Subscribes a listener to the events accepted by the filter
+	 * 
+	 * @param listener
+	 *            listener
+	 * @param filter
+	 *            filter selecting the events
+	 */
+	public void subscribe(ModelListener listener, ModelEventFilter filter) {
+		subscriptions.add(new Subscription(listener, filter));
+	}
+
+	/**
+	 * Removes all subscriptions of a listener
+	 * 
+	 * @param listener
+	 *            listener
+	 */
+	public void unsubscribe(ModelListener listener) {
+		for (Subscription s : subscriptions) {
+			if (s.listener == listener)
+				subscriptions.remove(s);
+		}
+	}
+
+	/**
+	 * Publishes an event. On the event dispatch thread the listeners are
+	 * notified before this function returns, otherwise later on the event
+	 * dispatch thread.
+	 * 
+	 * @param event
+	 *            event
+	 */
+	public void publish(final ModelEvent event) {
+		if (subscriptions.isEmpty())
+			return;
+		if (SwingUtilities.isEventDispatchThread()) {
+			dispatch(event);
+		} else {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					dispatch(event);
+				}
+			});
+		}
+	}
+
+	// ================================================================================
+	// Private Functions
+	// ================================================================================
+	/**
+	 * Notifies the listeners accepting the event, the filters of all
+	 * subscriptions are checked before the first listener is called
+	 * 
+	 * @param event
+	 *            event
+	 */
+	private void dispatch(ModelEvent event) {
+		List<ModelListener> targets = new ArrayList<ModelListener>();
+		for (Subscription s : subscriptions) {
+			if (s.filter.accept(event))
+				targets.add(s.listener);
+		}
+		for (ModelListener l : targets) {
+			l.modelChanged(model, event);
+		}
+	}
+
+}
@@ -0,0 +1,21 @@
+package ezrlc.Model;
+
+/**
+ * Selects the events a ModelListener is notified of
+ * 
+ * @author noah
+ *
+ */
+public interface ModelEventFilter {
+
+	/**
+	 * Checks if the event is passed to the listener, called on the event
+	 * dispatch thread
+	 * 
+	 * @param event
+	 *            event
+	 * @return true if the listener is notified
+	 */
+	boolean accept(ModelEvent event);
+
+}
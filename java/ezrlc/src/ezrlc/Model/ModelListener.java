@@ -0,0 +1,22 @@
+package ezrlc.Model;
+
+/**
+ * Receives the events of the model it subscribed to at the ModelEventBus
+ * 
+ * @author noah
+ *
+ */
+public interface ModelListener {
+
+	/**
+	 * Gets called on the event dispatch thread for every event accepted by the
+	 * filter of the subscription
+	 * 
+	 * @param model
+	 *            model that published the event
+	 * @param event
+	 *            event
+	 */
+	void modelChanged(Model model, ModelEvent event);
+
+}
@@ -0,0 +1,84 @@
+package ezrlc.ModelCalculation;
+
+import org.apache.commons.math3.exception.MathIllegalStateException;
+import org.apache.commons.math3.exception.TooManyEvaluationsException;
+import org.apache.commons.math3.optim.InitialGuess;
+import org.apache.commons.math3.optim.MaxEval;
+import org.apache.commons.math3.optim.PointValuePair;
+import org.apache.commons.math3.optim.SimpleBounds;
+import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
+import org.apache.commons.math3.optim.nonlinear.scalar.ObjectiveFunction;
+import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer;
+
+import ezrlc.ModelCalculation.MCFitResult.StopReason;
+import ezrlc.util.Complex;
+
+/**
+ * Bound constrained fitting engine using Powell's BOBYQA. The parameters never
+ * leave the bounds of the search space, so no evaluations are spent on
+ * negative elements.
+ * 
+ * @author noah
+ *
+ */
+public class MCBobyqaEngine implements MCFitEngine {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private int maxEval = 10000;
+
+	private double stopRadius = 1e-8;
+
+	/**
+	 * Used for search spaces with less than two dimensions, BOBYQA needs at
+	 * least two
+	 */
+	private MCSimplexEngine fallback = new MCSimplexEngine();
+
+	// ================================================================================
+	// Interface methods
+	// ================================================================================
+	@Override
+	public MCFitResult fit(MCEqCircuit circuit, Complex[] ys, MCSearchSpace space) {
+		int n = space.getDimension();
+		if (n < 2) {
+			return fallback.fit(circuit, ys, space);
+		}
+
+		double[] start = space.getStart();
+		double[] lower = space.getLowerBound();
+		double[] upper = space.getUpperBound();
+
+		// initial trust region must fit twice into the narrowest bound
+		double radius = space.getStep()[0];
+		for (int i = 0; i < n; i++) {
+			radius = Math.min(radius, 0.5 * (upper[i] - lower[i]));
+		}
+		if (!(radius > stopRadius)) {
+			return new MCFitResult(space.toParameters(start), StopReason.NOT_RUN, 0, 0, Double.NaN);
+		}
+
+		MCErrorSum errorFunction = new MCErrorSum(ys, circuit, space);
+		BOBYQAOptimizer optimizer = new BOBYQAOptimizer(2 * n + 1, radius, stopRadius);
+		try {
+			PointValuePair optimum = optimizer.optimize(new MaxEval(maxEval), new ObjectiveFunction(errorFunction),
+					GoalType.MINIMIZE, new InitialGuess(start), new SimpleBounds(lower, upper));
+			return new MCFitResult(space.toParameters(optimum.getPoint()), StopReason.CONVERGED,
+					errorFunction.getEvaluations(), 0, optimum.getValue());
+		} catch (MCCancelledException ex) {
+			return new MCFitResult(space.toParameters(errorFunction.getBestPoint(start)), StopReason.CANCELLED,
+					errorFunction.getEvaluations(), 0, errorFunction.getBestValue());
+		} catch (TooManyEvaluationsException ex) {
+			// continue with the best point seen so far
+			return new MCFitResult(space.toParameters(errorFunction.getBestPoint(start)), StopReason.MAX_EVAL,
+					errorFunction.getEvaluations(), 0, errorFunction.getBestValue());
+		} catch (MathIllegalStateException ex) {
+			// the trust region could not be reduced any further, continue
+			// with the best point seen so far
+			return new MCFitResult(space.toParameters(errorFunction.getBestPoint(start)), StopReason.STALLED,
+					errorFunction.getEvaluations(), 0, errorFunction.getBestValue());
+		}
+	}
+
+}
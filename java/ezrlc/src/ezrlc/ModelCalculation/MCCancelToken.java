@@ -0,0 +1,45 @@
+package ezrlc.ModelCalculation;
+
+/**
+ * Token shared by all fits of a worker. Once cancelled, the error functions
+ * of these fits stop the running optimizers at their next evaluation.
+ * 
+ * @author noah
+ *
+ */
+public class MCCancelToken {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private volatile boolean cancelled = false;
+
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Cancels all fits using this token
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Returns true if the token is cancelled
+	 * 
+	 * @return cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Throws an MCCancelledException if the token is cancelled
+	 */
+	public void check() {
+		if (cancelled) {
+			throw new MCCancelledException();
+		}
+	}
+
+}
@@ -0,0 +1,18 @@
+package ezrlc.ModelCalculation;
+
+/**
+ * Thrown by the error functions to abort an optimizer if the fit was
+ * cancelled
+ * 
+ * @author noah
+ *
+ */
+public class MCCancelledException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public MCCancelledException() {
+		super("Fit cancelled");
+	}
+
+}
@@ -0,0 +1,142 @@
+package ezrlc.ModelCalculation;
+
+import ezrlc.ModelCalculation.MCFitResult.StopReason;
+import ezrlc.util.Complex;
+
+/**
+ * Multi-resolution fitting engine. Most evaluations of a fit happen far from
+ * the optimum, where a few frequency points are enough to find the way. The
+ * circuit is fitted to log spaced subsets of the data first, each level
+ * starting at the result of the previous one, and polished on all points
+ * last. Any engine can be used for the single levels.
+ * 
+ * @author noah
+ *
+ */
+public class MCCoarseToFineEngine implements MCFitEngine {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private MCFitEngine engine;
+	private int[] levels;
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	/**
+	 * Creates a new coarse to fine engine fitting on 64 and 256 points before
+	 * the full data
+	 * 
+	 * @param engine
+	 *            engine used on every level
+	 */
+	public MCCoarseToFineEngine(MCFitEngine engine) {
+		this(engine, new int[] { 64, 256 });
+	}
+
+	/**
+	 * Creates a new coarse to fine engine
+	 * 
+	 * @param engine
+	 *            engine used on every level
+	 * @param levels
+	 *            number of points of the coarse levels, ascending
+	 */
+	public MCCoarseToFineEngine(MCFitEngine engine, int[] levels) {
+		this.engine = engine;
+		this.levels = levels;
+	}
+
+	// ================================================================================
+	// Getter and Setter Functions
+	// ================================================================================
+	/**
+	 * Returns the engine used on every level
+	 * 
+	 * @return fitting engine
+	 */
+	public MCFitEngine getEngine() {
+		return engine;
+	}
+
+	// ================================================================================
+	// Private Functions
+	// ================================================================================
+	/**
+	 * Picks about n points of the frequency vector, log spaced. Points closest
+	 * to a log spaced grid are taken, so the first and the last point are
+	 * always part of the subset.
+	 * 
+	 * @param f
+	 *            frequency vector, ascending
+	 * @param n
+	 *            number of points
+	 * @return indexes of the points, ascending
+	 */
+	private static int[] logSpacedIndexes(double[] f, int n) {
+		int[] tmp = new int[n];
+		int m = 0;
+		int j = 0;
+		boolean log = f[0] > 0;
+		double a = log ? Math.log(f[0]) : f[0];
+		double b = log ? Math.log(f[f.length - 1]) : f[f.length - 1];
+		for (int k = 0; k < n; k++) {
+			double x = a + (b - a) * k / (n - 1);
+			double target = log ? Math.exp(x) : x;
+			// move to the closest point
+			while (j < f.length - 1 && Math.abs(f[j + 1] - target) <= Math.abs(f[j] - target)) {
+				j++;
+			}
+			if (m == 0 || tmp[m - 1] != j) {
+				tmp[m++] = j;
+			}
+		}
+		int[] res = new int[m];
+		System.arraycopy(tmp, 0, res, 0, m);
+		return res;
+	}
+
+	// ================================================================================
+	// Interface methods
+	// ================================================================================
+	@Override
+	public MCFitResult fit(MCEqCircuit circuit, Complex[] ys, MCSearchSpace space) {
+		double[] f = circuit.getF();
+		double[] w = circuit.getW();
+		int evaluations = 0;
+		int iterations = 0;
+		MCSearchSpace levelSpace = space;
+
+		for (int n : levels) {
+			if (n < 2 || n >= f.length) {
+				continue;
+			}
+			// fit on the subset
+			int[] idx = logSpacedIndexes(f, n);
+			double[] wSub = new double[idx.length];
+			Complex[] ysSub = new Complex[idx.length];
+			for (int i = 0; i < idx.length; i++) {
+				wSub[i] = w[idx[i]];
+				ysSub[i] = ys[idx[i]];
+			}
+			MCEqCircuit c = circuit.copy();
+			c.setWVector(wSub);
+			MCFitResult res = engine.fit(c, ysSub, levelSpace);
+			evaluations += res.getEvaluations();
+			iterations += res.getIterations();
+			if (res.getStopReason() == StopReason.CANCELLED) {
+				return new MCFitResult(res.getParameters(), StopReason.CANCELLED, evaluations, iterations,
+						res.getError());
+			}
+			// next level starts at the result of this one
+			levelSpace = levelSpace.restartAt(res.getParameters());
+		}
+
+		// polish on all points
+		MCFitResult res = engine.fit(circuit, ys, levelSpace);
+		return new MCFitResult(res.getParameters(), res.getStopReason(), evaluations + res.getEvaluations(),
+				iterations + res.getIterations(), res.getError());
+	}
+
+}
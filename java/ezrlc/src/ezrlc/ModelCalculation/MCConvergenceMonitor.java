@@ -0,0 +1,136 @@
+package ezrlc.ModelCalculation;
+
+import org.apache.commons.math3.optim.BaseOptimizer;
+import org.apache.commons.math3.optim.ConvergenceChecker;
+import org.apache.commons.math3.optim.PointValuePair;
+import org.apache.commons.math3.optim.SimpleValueChecker;
+
+import ezrlc.ModelCalculation.MCFitResult.StopReason;
+
+/**
+ * Convergence checker for the simplex optimizer. Besides the usual threshold
+ * check, the best error of every iteration is tracked and the optimizer is
+ * stopped if the relative improvement over a sliding window of iterations
+ * falls below a tolerance.
+ * 
+ * @author noah
+ *
+ */
+public class MCConvergenceMonitor implements ConvergenceChecker<PointValuePair> {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private SimpleValueChecker checker;
+	private BaseOptimizer<PointValuePair> optimizer;
+
+	private double[] history;
+	private int historyCtr = 0;
+	private double tolerance;
+
+	private int iteration = -1;
+	private boolean stalled = false;
+	private StopReason stopReason = null;
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	/**
+	 * Creates a new convergence monitor
+	 * 
+	 * @param relTh
+	 *            relative threshold of the value checker
+	 * @param absTh
+	 *            absolute threshold of the value checker
+	 * @param window
+	 *            number of iterations of the sliding window, 0 disables the
+	 *            window
+	 * @param tolerance
+	 *            minimal relative improvement over the window
+	 */
+	public MCConvergenceMonitor(double relTh, double absTh, int window, double tolerance) {
+		this.checker = new SimpleValueChecker(relTh, absTh);
+		this.history = new double[Math.max(window, 0) + 1];
+		this.tolerance = tolerance;
+	}
+
+	// ================================================================================
+	// Getter and Setter Functions
+	// ================================================================================
+	/**
+	 * Sets the optimizer the iterations are taken from. The simplex optimizer
+	 * always passes 0 as iteration to the checker.
+	 * 
+	 * @param optimizer
+	 *            optimizer using this monitor
+	 */
+	public void setOptimizer(BaseOptimizer<PointValuePair> optimizer) {
+		this.optimizer = optimizer;
+	}
+
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Returns why the optimizer stopped
+	 * 
+	 * @return stop reason, null if the monitor did not stop the optimizer
+	 */
+	public StopReason getStopReason() {
+		return stopReason;
+	}
+
+	/**
+	 * Returns the number of iterations seen by the monitor
+	 * 
+	 * @return iterations
+	 */
+	public int getIterations() {
+		return iteration + 1;
+	}
+
+	/**
+	 * Resets the window, used if the monitor is reused for another run
+	 */
+	public void reset() {
+		historyCtr = 0;
+		iteration = -1;
+		stalled = false;
+		stopReason = null;
+	}
+
+	// ================================================================================
+	// Interface methods
+	// ================================================================================
+	/**
+	 * Gets called by the optimizer for every vertex, the best vertex first
+	 */
+	@Override
+	public boolean converged(int iteration, PointValuePair previous, PointValuePair current) {
+		if (optimizer != null) {
+			iteration = optimizer.getIterations();
+		}
+		// first call of an iteration holds the best vertex
+		if (iteration != this.iteration) {
+			this.iteration = iteration;
+			history[historyCtr % history.length] = current.getValue();
+			historyCtr++;
+			if (history.length > 1 && historyCtr >= history.length) {
+				double oldest = history[historyCtr % history.length];
+				double newest = current.getValue();
+				// written negated, so a window of NaN errors counts as stalled
+				stalled = !((oldest - newest) > tolerance * Math.abs(oldest));
+			}
+		}
+		if (stalled) {
+			stopReason = StopReason.STALLED;
+			return true;
+		}
+		boolean res = checker.converged(iteration, previous, current);
+		if (res) {
+			stopReason = StopReason.CONVERGED;
+		}
+		return res;
+	}
+
+}
@@ -1,14 +1,7 @@
 package ezrlc.ModelCalculation;
 
-import org.apache.commons.math3.exception.TooManyEvaluationsException;
-import org.apache.commons.math3.optim.InitialGuess;
-import org.apache.commons.math3.optim.MaxEval;
-import org.apache.commons.math3.optim.PointValuePair;
-import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
-import org.apache.commons.math3.optim.nonlinear.scalar.ObjectiveFunction;
-import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.NelderMeadSimplex;
-import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.SimplexOptimizer;
-
+import ezrlc.ModelCalculation.MCOptions.FitEngineType;
+import ezrlc.ModelCalculation.MCSearchSpace.ParameterSpace;
 import ezrlc.RFData.RFData;
 import ezrlc.util.Complex;
 
@@ -40,7 +33,6 @@ public class MCEqCircuit implements Runnable {
 	private MCOptions ops;
 
 	private double[] parameters;
-	private double[] shortParameters;
 
 	private double[] wvector;
 
@@ -49,16 +41,10 @@ public class MCEqCircuit implements Runnable {
 	// Used for threadded optimizing
 	private Complex[] ys;
 
-	private double optStepDefault = 0.001;
-	// private double optRelThDefault = 1e-11;
-	// private double optAbsThDefault = 1e-14;
-	private double optRelThDefault = 1e-12;
-	private double optAbsThDefault = 1e-15;
-
-	private SimplexOptimizer optimizer;
-	private PointValuePair optimum;
-	private MCErrorSum errorFunction;
-	private double[] optStep;
+	private MCFitEngine fitEngine;
+	private MCFitResult fitResult;
+	private MCCancelToken cancelToken;
+	private MCFitWorkspace fitWorkspace;
 
 	private double small = Math.pow(10, -50);
 
@@ -73,7 +59,6 @@ public class MCEqCircuit implements Runnable {
 	 */
 	public MCEqCircuit(CircuitType circuitType) {
 		this.circuitType = circuitType;
-		initOptimizer();
 		parameters = new double[7];
 		for (int i = 0; i < 7; i++) {
 			parameters[i] = 0.0;
@@ -90,7 +75,6 @@ public class MCEqCircuit implements Runnable {
 	 */
 	public MCEqCircuit(CircuitType circuitType, double[] params) {
 		this.circuitType = circuitType;
-		initOptimizer();
 		parameters = new double[7];
 		System.arraycopy(params, 0, this.parameters, 0, params.length);
 	}
@@ -115,7 +99,7 @@ public class MCEqCircuit implements Runnable {
 	 * @param params
 	 *            Parameter array [7]
 	 */
-	public final void setParameters(double[] params) {
+	public final synchronized void setParameters(double[] params) {
 		System.arraycopy(params, 0, parameters, 0, params.length);
 	}
 
@@ -136,7 +120,7 @@ public class MCEqCircuit implements Runnable {
 	 * 
 	 * @return parameter array
 	 */
-	public double[] getParameters() {
+	public synchronized double[] getParameters() {
 		double[] res = new double[7];
 		System.arraycopy(parameters, 0, res, 0, 7);
 		return res;
@@ -162,9 +146,139 @@ public class MCEqCircuit implements Runnable {
 		return ops;
 	}
 
+	/**
+	 * Sets the engine used to optimize this circuit. If no engine is set, the
+	 * engine is chosen by the circuit options
+	 * 
+	 * @param engine
+	 *            fitting engine
+	 */
+	public void setFitEngine(MCFitEngine engine) {
+		this.fitEngine = engine;
+	}
+
+	/**
+	 * Sets the engine used to optimize this circuit
+	 * 
+	 * @param type
+	 *            type of the fitting engine
+	 */
+	public void setFitEngine(FitEngineType type) {
+		switch (type) {
+		case LEVENBERG_MARQUARDT:
+			this.fitEngine = new MCLevenbergMarquardtEngine();
+			break;
+		case BOBYQA:
+			this.fitEngine = new MCBobyqaEngine();
+			break;
+		case MULTI_START:
+			if (ops != null) {
+				MCMultiStartEngine engine = new MCMultiStartEngine(ops.multiStarts, ops.multiStartSpread);
+				engine.setConvergenceWindow(ops.convergenceWindow, ops.convergenceTolerance);
+				engine.setDeterministic(ops.deterministic, ops.randomSeed);
+				this.fitEngine = engine;
+			} else {
+				this.fitEngine = new MCMultiStartEngine();
+			}
+			break;
+		case SIMPLEX:
+		default:
+			if (ops != null) {
+				this.fitEngine = new MCSimplexEngine(ops.convergenceWindow, ops.convergenceTolerance);
+			} else {
+				this.fitEngine = new MCSimplexEngine();
+			}
+			break;
+		}
+		if (ops != null && ops.coarseToFine) {
+			this.fitEngine = new MCCoarseToFineEngine(this.fitEngine, ops.coarseLevels);
+		}
+	}
+
+	/**
+	 * Returns the engine used to optimize this circuit
+	 * 
+	 * @return fitting engine
+	 */
+	public MCFitEngine getFitEngine() {
+		if (fitEngine == null) {
+			setFitEngine(ops != null ? ops.fitEngine : FitEngineType.SIMPLEX);
+		}
+		return fitEngine;
+	}
+
+	/**
+	 * Sets the token used to cancel the optimization of this circuit
+	 * 
+	 * @param token
+	 *            cancel token, may be null
+	 */
+	public void setCancelToken(MCCancelToken token) {
+		this.cancelToken = token;
+	}
+
+	public MCCancelToken getCancelToken() {
+		return cancelToken;
+	}
+
+	/**
+	 * Sets the workspace of a refit. A circuit with a workspace is refitted
+	 * from its current parameters with small relative steps.
+	 * 
+	 * @param workspace
+	 *            workspace, null for a cold fit
+	 */
+	public void setFitWorkspace(MCFitWorkspace workspace) {
+		this.fitWorkspace = workspace;
+	}
+
+	public MCFitWorkspace getFitWorkspace() {
+		return fitWorkspace;
+	}
+
+	/**
+	 * Returns the result of the last optimization, holding the stop reason
+	 * and the number of evaluations
+	 * 
+	 * @return fit result, null if the circuit was not optimized yet
+	 */
+	public MCFitResult getFitResult() {
+		return fitResult;
+	}
+
 	// ================================================================================
 	// Public Functions
 	// ================================================================================
+	/**
+	 * Creates a copy of this circuit with the same parameters, frequency
+	 * vector, reference resistance and options. The fitting engine is not
+	 * copied. Used to evaluate the circuit in several threads at once.
+	 * 
+	 * @return new circuit
+	 */
+	public synchronized MCEqCircuit copy() {
+		MCEqCircuit c = new MCEqCircuit(circuitType, parameters);
+		if (wvector != null) {
+			c.setWVector(wvector);
+		}
+		c.setZ0(z0);
+		c.setOps(ops);
+		c.setCancelToken(cancelToken);
+		return c;
+	}
+
+	/**
+	 * Returns a copy of the stored frequency vector in omega
+	 * 
+	 * @return frequency vector, null if not set
+	 */
+	public double[] getW() {
+		if (wvector == null)
+			return null;
+		double[] res = new double[wvector.length];
+		System.arraycopy(wvector, 0, res, 0, wvector.length);
+		return res;
+	}
 
 	/**
 	 * Returns a copy of the stored frequency vector
@@ -395,21 +509,72 @@ public class MCEqCircuit implements Runnable {
 	 *            complex scattering parameters to which the model is optimized
 	 */
 	public void optimize(Complex[] ys) {
-		// shorten parameters to optimize
-		shortParameters = MCUtil.shortenParam(circuitType, parameters);
-		errorFunction = new MCErrorSum(ys, this);
-		optimum = null;
-		try {
-			optimum = optimizer.optimize(new MaxEval(10000), new ObjectiveFunction(errorFunction), GoalType.MINIMIZE,
-					new InitialGuess(shortParameters), new NelderMeadSimplex(optStep));
-			parameters = MCUtil.topo2Param(circuitType, optimum.getPoint());
-		} catch (TooManyEvaluationsException ex) {
-			// This exception can be ignored. If max eval is reached, the recent
-			// parameters are stored
-			// and no null pointer can appear
-			parameters = new double[] { 1.0, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0 };
+		// build search space of the parameters to optimize
+		MCSearchSpace space = createSearchSpace();
+		// nothing left to optimize
+		if (space.getDimension() == 0) {
+			setParameters(space.toParameters(space.getStart()));
+			fitResult = new MCFitResult(getParameters(), MCFitResult.StopReason.NOT_RUN, 0, 0, Double.NaN);
+			return;
+		}
+		// cancelled before the fit started
+		if (cancelToken != null && cancelToken.isCancelled()) {
+			fitResult = new MCFitResult(getParameters(), MCFitResult.StopReason.CANCELLED, 0, 0, Double.NaN);
+			return;
 		}
 		// save new parameters
+		fitResult = getFitEngine().fit(this, ys, space);
+		setParameters(fitResult.getParameters());
+	}
+
+	/**
+	 * Creates the search space of the current parameters. Manual parameters
+	 * of the options are held fixed, in bounded mode the parameters are kept
+	 * within the bounds of the options. The circuit is not changed.
+	 * 
+	 * @return search space
+	 */
+	public MCSearchSpace createSearchSpace() {
+		double[] start = getParameters();
+		if (ops == null) {
+			return new MCSearchSpace(circuitType, start, ParameterSpace.LINEAR);
+		}
+		boolean[] fixed = new boolean[7];
+		for (int i = 0; i < 7; i++) {
+			if (ops.paramsAuto[i] == false) {
+				fixed[i] = true;
+				start[i] = ops.params[i];
+			}
+		}
+		ParameterSpace ps = ops.parameterSpace;
+		MCFitEngine engine = getFitEngine();
+		if (engine instanceof MCCoarseToFineEngine) {
+			engine = ((MCCoarseToFineEngine) engine).getEngine();
+		}
+		// bounds of very different magnitudes need a scaled space
+		boolean bounded = ops.boundedFit || engine instanceof MCBobyqaEngine;
+		if (bounded && ps == ParameterSpace.LINEAR) {
+			ps = ParameterSpace.SCALED;
+		}
+		// start points are spread over decades
+		if (engine instanceof MCMultiStartEngine && ((MCMultiStartEngine) engine).getStarts() > 1
+				&& ps == ParameterSpace.LINEAR) {
+			ps = ParameterSpace.LOG;
+		}
+		// a refit takes steps relative to the fitted parameters
+		if (fitWorkspace != null && ps == ParameterSpace.LINEAR) {
+			ps = ParameterSpace.SCALED;
+		}
+		MCSearchSpace space;
+		if (ops.boundedFit) {
+			space = new MCSearchSpace(circuitType, start, ps, fixed, ops.paramsMin, ops.paramsMax);
+		} else {
+			space = new MCSearchSpace(circuitType, start, ps, fixed, null, null);
+		}
+		if (fitWorkspace != null) {
+			space.setRelativeStep(fitWorkspace.getRelativeStep());
+		}
+		return space;
 	}
 
 	/**
@@ -435,18 +600,6 @@ public class MCEqCircuit implements Runnable {
 	// ================================================================================
 	// Private Functions
 	// ================================================================================
-	/**
-	 * Inits the optimizer
-	 */
-	private void initOptimizer() {
-		int nelements = MCUtil.modelNParameters[this.circuitType.ordinal()];
-		optStep = new double[nelements];
-		for (int i = 0; i < nelements; i++) {
-			optStep[i] = optStepDefault;
-		}
-		optimizer = new SimplexOptimizer(optRelThDefault, optAbsThDefault);
-	}
-
 	/**
 	 * Calculates the impedance parameters of the model 0
 	 * 
@@ -0,0 +1,285 @@
+package ezrlc.ModelCalculation;
+
+import ezrlc.RFData.RFData;
+import ezrlc.util.Complex;
+
+/**
+ * Error metric minimized by the fitting engines. The measured data is
+ * converted once, every evaluation is a single pass over the model data.
+ * Usage: new MCErrorMetric(ops, ys, w, z0).value(circuit)
+ * 
+ * @author noah
+ *
+ */
+public class MCErrorMetric {
+
+	// ================================================================================
+	// Public Data
+	// ================================================================================
+	public enum MetricType {
+		/**
+		 * Least square of the scattering magnitudes
+		 */
+		S_MAG,
+		/**
+		 * Least square of the complex scattering parameters
+		 */
+		S_COMPLEX,
+		/**
+		 * Least square of the complex impedance, as used by the rank
+		 */
+		Z_COMPLEX,
+		/**
+		 * Least square of the log impedance magnitudes
+		 */
+		Z_LOG_MAG,
+		/**
+		 * Least square of the complex impedance relative to the measured
+		 * magnitude
+		 */
+		RELATIVE,
+		/**
+		 * Huber loss of the complex scattering parameters, quadratic for
+		 * small and linear for large deltas
+		 */
+		HUBER
+	};
+
+	public enum Weighting {
+		/**
+		 * All points weighted equally
+		 */
+		NONE,
+		/**
+		 * Points weighted by 1/f, compensates the point density of a linear
+		 * sweep
+		 */
+		INV_F
+	};
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private MetricType type;
+	private double huberDelta;
+
+	// measured data, converted to what the metric needs
+	private double[] re;
+	private double[] im;
+	private double[] mag;
+	private double[] weight;
+
+	/**
+	 * Smallest magnitude used to take the logarithm or divide
+	 */
+	private double tiny = 1e-30;
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	/**
+	 * Creates a new error metric
+	 * 
+	 * @param ops
+	 *            options holding metric type and weighting, null for the
+	 *            scattering magnitudes without weights
+	 * @param ys
+	 *            measured scattering data
+	 * @param w
+	 *            frequency vector in omega
+	 * @param z0
+	 *            reference resistance of the scattering data
+	 */
+	public MCErrorMetric(MCOptions ops, Complex[] ys, double[] w, double z0) {
+		this.type = (ops != null) ? ops.errorMetric : MetricType.S_MAG;
+		this.huberDelta = (ops != null) ? ops.huberDelta : 0.0;
+		Weighting weighting = (ops != null) ? ops.errorWeighting : Weighting.NONE;
+
+		Complex[] data = isImpedance() ? RFData.s2z(z0, ys) : ys;
+		int n = data.length;
+		re = new double[n];
+		im = new double[n];
+		mag = new double[n];
+		for (int i = 0; i < n; i++) {
+			re[i] = data[i].re();
+			im[i] = data[i].im();
+			mag[i] = data[i].abs();
+			if (type == MetricType.Z_LOG_MAG) {
+				mag[i] = Math.log(Math.max(mag[i], tiny));
+			} else if (type == MetricType.RELATIVE) {
+				mag[i] = Math.max(mag[i] * mag[i], tiny);
+			}
+		}
+		weight = createWeights(weighting, w, n);
+	}
+
+	// ================================================================================
+	// Private Functions
+	// ================================================================================
+	/**
+	 * Creates the weight of every point, normalized to a mean of one
+	 * 
+	 * @param weighting
+	 *            weighting
+	 * @param w
+	 *            frequency vector in omega
+	 * @param n
+	 *            number of points
+	 * @return weights, null if all points are weighted equally
+	 */
+	private static double[] createWeights(Weighting weighting, double[] w, int n) {
+		if (weighting != Weighting.INV_F || w == null) {
+			return null;
+		}
+		// the lowest frequency gets the weight of the lowest positive one
+		double wMin = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			if (w[i] > 0) {
+				wMin = Math.min(wMin, w[i]);
+			}
+		}
+		if (Double.isInfinite(wMin)) {
+			return null;
+		}
+		double[] res = new double[n];
+		double sum = 0;
+		for (int i = 0; i < n; i++) {
+			res[i] = 1.0 / Math.max(w[i], wMin);
+			sum += res[i];
+		}
+		for (int i = 0; i < n; i++) {
+			res[i] = res[i] * n / sum;
+		}
+		return res;
+	}
+
+	/**
+	 * Checks if the metric compares impedances
+	 * 
+	 * @return true for impedance, false for scattering parameters
+	 */
+	private boolean isImpedance() {
+		return type == MetricType.Z_COMPLEX || type == MetricType.Z_LOG_MAG || type == MetricType.RELATIVE;
+	}
+
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Returns the error of the circuit at its current parameters. The model
+	 * data of the circuit is calculated for every call.
+	 * 
+	 * @param circuit
+	 *            equivalent circuit
+	 * @return error
+	 */
+	public double value(MCEqCircuit circuit) {
+		return value(isImpedance() ? circuit.getZ() : circuit.getS());
+	}
+
+	/**
+	 * Returns the error of the given model data
+	 * 
+	 * @param model
+	 *            model impedance for the Z metrics, else model scattering
+	 *            parameters
+	 * @return error
+	 */
+	public double value(Complex[] model) {
+		double error = 0;
+		double delta = 0;
+		for (int i = 0; i < model.length; i++) {
+			double dr = model[i].re() - re[i];
+			double di = model[i].im() - im[i];
+			switch (type) {
+			case S_MAG:
+				delta = model[i].abs() - mag[i];
+				delta = delta * delta;
+				break;
+			case Z_LOG_MAG:
+				delta = Math.log(Math.max(model[i].abs(), tiny)) - mag[i];
+				delta = delta * delta;
+				break;
+			case RELATIVE:
+				delta = (dr * dr + di * di) / mag[i];
+				break;
+			case HUBER:
+				delta = Math.hypot(dr, di);
+				delta = (delta <= huberDelta) ? 0.5 * delta * delta : huberDelta * (delta - 0.5 * huberDelta);
+				break;
+			case S_COMPLEX:
+			case Z_COMPLEX:
+			default:
+				delta = dr * dr + di * di;
+				break;
+			}
+			error += (weight != null) ? weight[i] * delta : delta;
+		}
+		return error;
+	}
+
+	/**
+	 * Returns the residuals of the circuit at its current parameters
+	 * 
+	 * @param circuit
+	 *            equivalent circuit
+	 * @return residuals, see {@link #residuals(Complex[])}
+	 */
+	public double[] residuals(MCEqCircuit circuit) {
+		return residuals(isImpedance() ? circuit.getZ() : circuit.getS());
+	}
+
+	/**
+	 * Returns the residuals of the given model data for least square solvers.
+	 * Every point has a real and an imaginary residual, the sum of their
+	 * squares is the error of {@link #value(Complex[])}. The magnitude metrics
+	 * leave the imaginary residual at zero, the Huber loss scales the complex
+	 * delta to the square root of the loss.
+	 * 
+	 * @param model
+	 *            model impedance for the Z metrics, else model scattering
+	 *            parameters
+	 * @return real residuals followed by imaginary residuals
+	 */
+	public double[] residuals(Complex[] model) {
+		int n = model.length;
+		double[] res = new double[2 * n];
+		for (int i = 0; i < n; i++) {
+			double dr = model[i].re() - re[i];
+			double di = model[i].im() - im[i];
+			double factor = 1.0;
+			switch (type) {
+			case S_MAG:
+				dr = model[i].abs() - mag[i];
+				di = 0;
+				break;
+			case Z_LOG_MAG:
+				dr = Math.log(Math.max(model[i].abs(), tiny)) - mag[i];
+				di = 0;
+				break;
+			case RELATIVE:
+				factor = 1.0 / Math.sqrt(mag[i]);
+				break;
+			case HUBER:
+				double delta = Math.hypot(dr, di);
+				if (delta <= huberDelta) {
+					factor = Math.sqrt(0.5);
+				} else {
+					factor = Math.sqrt(huberDelta * (delta - 0.5 * huberDelta)) / delta;
+				}
+				break;
+			case S_COMPLEX:
+			case Z_COMPLEX:
+			default:
+				break;
+			}
+			if (weight != null) {
+				factor *= Math.sqrt(weight[i]);
+			}
+			res[i] = factor * dr;
+			res[i + n] = factor * di;
+		}
+		return res;
+	}
+
+}
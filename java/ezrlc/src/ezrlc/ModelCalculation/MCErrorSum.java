@@ -5,7 +5,9 @@ import org.apache.commons.math3.analysis.MultivariateFunction;
 import ezrlc.util.Complex;
 
 /**
- * Functions to get the error sum, least square
+ * Objective function of the optimizers. Maps the search vector to the circuit
+ * parameters and returns the error metric of the circuit options. The static
+ * functions return the least square error sum.
  * 
  * @author noah
  *
@@ -16,7 +18,13 @@ public class MCErrorSum implements MultivariateFunction {
 	// Private Data
 	// ================================================================================
 	private MCEqCircuit circuit;
-	private Complex[] measured;
+	private MCSearchSpace space;
+	private MCCancelToken cancelToken;
+	private MCErrorMetric metric;
+
+	private double bestValue = Double.POSITIVE_INFINITY;
+	private double[] bestPoint;
+	private int evaluations = 0;
 
 	// ================================================================================
 	// Constructors
@@ -30,9 +38,25 @@ public class MCErrorSum implements MultivariateFunction {
 	 *            equivalent circuit object
 	 */
 	public MCErrorSum(Complex[] measured, MCEqCircuit circuit) {
+		this(measured, circuit, new MCSearchSpace(circuit.getCircuitType(), circuit.getParameters(),
+				MCSearchSpace.ParameterSpace.LINEAR));
+	}
+
+	/**
+	 * Create new error sum object working on the given search space
+	 * 
+	 * @param measured
+	 *            measured data
+	 * @param circuit
+	 *            equivalent circuit object
+	 * @param space
+	 *            search space of the optimizer
+	 */
+	public MCErrorSum(Complex[] measured, MCEqCircuit circuit, MCSearchSpace space) {
 		this.circuit = circuit;
-		this.measured = new Complex[measured.length];
-		System.arraycopy(measured, 0, this.measured, 0, measured.length);
+		this.space = space;
+		this.cancelToken = circuit.getCancelToken();
+		this.metric = new MCErrorMetric(circuit.getOps(), measured, circuit.getW(), circuit.getZ0());
 	}
 
 	// ================================================================================
@@ -99,6 +123,41 @@ public class MCErrorSum implements MultivariateFunction {
 		return leastSquare(measured, simulated);
 	}
 
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Returns the point with the lowest error that has been evaluated so far
+	 * 
+	 * @param fallback
+	 *            point returned if nothing was evaluated yet
+	 * @return copy of the best point
+	 */
+	public double[] getBestPoint(double[] fallback) {
+		double[] p = (bestPoint != null) ? bestPoint : fallback;
+		double[] res = new double[p.length];
+		System.arraycopy(p, 0, res, 0, p.length);
+		return res;
+	}
+
+	/**
+	 * Returns the lowest error that has been evaluated so far
+	 * 
+	 * @return error, infinity if nothing was evaluated yet
+	 */
+	public double getBestValue() {
+		return bestValue;
+	}
+
+	/**
+	 * Returns the number of evaluations so far
+	 * 
+	 * @return evaluations
+	 */
+	public int getEvaluations() {
+		return evaluations;
+	}
+
 	// ================================================================================
 	// Interface methods
 	// ================================================================================
@@ -106,25 +165,28 @@ public class MCErrorSum implements MultivariateFunction {
 	 * Gets called by optimizer to calculate error
 	 * 
 	 * @param params:
-	 *            parameter array from optimizer
+	 *            search vector from optimizer
 	 * @return error
+	 * @throws MCCancelledException
+	 *             if the cancel token of the circuit is cancelled
 	 */
 	@Override
 	public double value(double[] params) {
+		if (cancelToken != null) {
+			cancelToken.check();
+		}
+		evaluations++;
 		// set new parameter
-		double[] p = MCUtil.topo2Param(this.circuit.getCircuitType(), params);
+		double[] p = space.toParameters(params);
 		circuit.setParameters(p);
-		// get s parameters
-		Complex[] s = circuit.getS();
-		// build magnitude
-		double[] magS = new double[s.length];
-		double[] magmeas = new double[s.length];
-		for (int i = 0; i < s.length; i++) {
-			magS[i] = s[i].abs();
-			magmeas[i] = this.measured[i].abs();
-		}
 		// calc error
-		double error = MCErrorSum.getError(magmeas, magS); // Complex oder mag??
+		double error = metric.value(circuit);
+		// remember the best point
+		if (error < bestValue) {
+			bestValue = error;
+			bestPoint = new double[params.length];
+			System.arraycopy(params, 0, bestPoint, 0, params.length);
+		}
 		return error;
 	}
 
@@ -1,6 +1,8 @@
 package ezrlc.ModelCalculation;
 
 import ezrlc.ModelCalculation.MCEqCircuit.CircuitType;
+import ezrlc.RFData.RFFeatures;
+import ezrlc.RFData.RFFeatures.ResonanceType;
 import ezrlc.util.Complex;
 import ezrlc.util.MathUtil;
 
@@ -37,6 +39,30 @@ public class MCExpander {
 	 * @return new expanded quivalent circuit
 	 */
 	public static MCEqCircuit expand(MCEqCircuit eqc, Complex[] yz, double[] w) {
+		return expand(eqc, yz, w, null);
+	}
+
+	/**
+	 * extends 2 Element EQCircuits to a 3 Element EQCircuit. If the self
+	 * resonance of the measurement lies in the frequency range and fits the
+	 * expanded circuit, the new element is calculated from the resonant
+	 * frequency, else from the point of the biggest deviation.
+	 * 
+	 * @param eqc
+	 *            quivalent circuit as template
+	 * @param yz
+	 *            impedance data
+	 * @param w
+	 *            frequency vector
+	 * @param features
+	 *            features of the measurement, null if unknown
+	 * @return new expanded quivalent circuit
+	 */
+	public static MCEqCircuit expand(MCEqCircuit eqc, Complex[] yz, double[] w, RFFeatures features) {
+		double w0 = resonance(eqc.getCircuitType(), w, features);
+		if (!Double.isNaN(w0)) {
+			return expandAtResonance(eqc, w, w0);
+		}
 
 		// EQCircuits
 		Complex[] zeqc = eqc.getZ();
@@ -86,8 +112,95 @@ public class MCExpander {
 		eqcExt.setParameter(5, c0);
 		eqcExt.setWVector(w);
 		eqcExt.setZ0(eqc.getZ0());
+		eqcExt.setOps(eqc.getOps());
+		eqcExt.setCancelToken(eqc.getCancelToken());
 
 		return eqcExt;
 	}
 
+	// ================================================================================
+	// Private functions
+	// ================================================================================
+	/**
+	 * Returns the self resonance if it lies in the frequency range and its
+	 * type fits the expanded circuit: parallel for L based, series for C based
+	 * circuits
+	 * 
+	 * @param type
+	 *            type of the 2 element circuit
+	 * @param w
+	 *            frequency vector
+	 * @param features
+	 *            features of the measurement, may be null
+	 * @return resonance in omega, NaN if not usable
+	 */
+	private static double resonance(CircuitType type, double[] w, RFFeatures features) {
+		if (features == null || features.getSrfType() == null) {
+			return Double.NaN;
+		}
+		double w0 = 2.0 * Math.PI * features.getSrf();
+		if (w0 <= w[0] || w0 >= w[w.length - 1]) {
+			return Double.NaN;
+		}
+		ResonanceType expected;
+		switch (type) {
+		case MODEL0:
+		case MODEL1:
+			expected = ResonanceType.PARALLEL;
+			break;
+		case MODEL2:
+		case MODEL3:
+			expected = ResonanceType.SERIES;
+			break;
+		default:
+			return Double.NaN;
+		}
+		return (features.getSrfType() == expected) ? w0 : Double.NaN;
+	}
+
+	/**
+	 * Adds the element resonating with the existing one at w0, 1 / (w0^2 * L)
+	 * or 1 / (w0^2 * C)
+	 * 
+	 * @param eqc
+	 *            quivalent circuit as template
+	 * @param w
+	 *            frequency vector
+	 * @param w0
+	 *            resonance in omega
+	 * @return new expanded quivalent circuit
+	 */
+	private static MCEqCircuit expandAtResonance(MCEqCircuit eqc, double[] w, double w0) {
+		double r0 = eqc.getParameters()[0];
+		double l = eqc.getParameters()[4];
+		double c0 = eqc.getParameters()[5];
+		MCEqCircuit eqcExt;
+		switch (eqc.getCircuitType()) {
+		case MODEL0:
+			eqcExt = new MCEqCircuit(CircuitType.MODEL6);
+			c0 = 1 / (w0 * w0 * l);
+			break;
+		case MODEL1:
+			eqcExt = new MCEqCircuit(CircuitType.MODEL5);
+			c0 = 1 / (w0 * w0 * l);
+			break;
+		case MODEL2:
+			eqcExt = new MCEqCircuit(CircuitType.MODEL4);
+			l = 1 / (w0 * w0 * c0);
+			break;
+		default:
+			eqcExt = new MCEqCircuit(CircuitType.MODEL7);
+			l = 1 / (w0 * w0 * c0);
+			break;
+		}
+		eqcExt.setParameter(0, r0);
+		eqcExt.setParameter(4, l);
+		eqcExt.setParameter(5, c0);
+		eqcExt.setWVector(w);
+		eqcExt.setZ0(eqc.getZ0());
+		eqcExt.setOps(eqc.getOps());
+		eqcExt.setCancelToken(eqc.getCancelToken());
+		return eqcExt;
+	}
+
 }
@@ -0,0 +1,292 @@
+package ezrlc.ModelCalculation;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ezrlc.ModelCalculation.MCEqCircuit.CircuitType;
+import ezrlc.RFData.RFData;
+import ezrlc.util.Complex;
+
+/**
+ * Caches fitted equivalent circuits, keyed by a hash of the measured data and
+ * of the options that change the fit. Holds the last n results in memory and
+ * optionally persists them to a file, so a measurement re-fitted with the same
+ * options does not need a worker at all.
+ * 
+ * @author noah
+ *
+ */
+public class MCFitCache {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	/**
+	 * Cached fit result
+	 */
+	private static class CachedFit {
+		private CircuitType circuitType;
+		private double z0;
+		private double[] parameters;
+		// built on the first hit, every hit gets its own copy
+		private MCEqCircuit circuit;
+
+		private CachedFit(CircuitType circuitType, double z0, double[] parameters) {
+			this.circuitType = circuitType;
+			this.z0 = z0;
+			this.parameters = parameters;
+		}
+	}
+
+	private final int capacity;
+	private final LinkedHashMap<String, CachedFit> entries;
+
+	private File file;
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	/**
+	 * Creates a new in memory cache
+	 * 
+	 * @param capacity
+	 *            number of results held, the least recently used is evicted
+	 *            first
+	 */
+	public MCFitCache(int capacity) {
+		this(capacity, null);
+	}
+
+	/**
+	 * Creates a new cache persisted to the given file. Existing entries of the
+	 * file are loaded.
+	 * 
+	 * @param capacity
+	 *            number of results held, the least recently used is evicted
+	 *            first
+	 * @param file
+	 *            cache file, null for an in memory cache
+	 */
+	public MCFitCache(int capacity, File file) {
+		this.capacity = Math.max(capacity, 1);
+		this.entries = new LinkedHashMap<String, CachedFit>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedFit> eldest) {
+				return size() > MCFitCache.this.capacity;
+			}
+		};
+		this.file = file;
+		if (file != null && file.exists()) {
+			load();
+		}
+	}
+
+	// ================================================================================
+	// Private Functions
+	// ================================================================================
+	/**
+	 * Creates the key of a measurement and options. Option fields set to auto
+	 * are hashed without their value.
+	 * 
+	 * @param rfData
+	 *            measurement data
+	 * @param ops
+	 *            options
+	 * @return hex string of the hash
+	 */
+	private static String key(RFData rfData, MCOptions ops) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			// data
+			double[] f = rfData.getfData();
+			Complex[] z = rfData.getzData();
+			out.writeInt(f.length);
+			for (int i = 0; i < f.length; i++) {
+				out.writeDouble(f[i]);
+				out.writeDouble(z[i].re());
+				out.writeDouble(z[i].im());
+			}
+			// frequency range and element count
+			out.writeDouble(ops.fMinAuto ? Double.NaN : ops.fMin);
+			out.writeDouble(ops.fMaxAuto ? Double.NaN : ops.fMax);
+			// the worker reads both limits even with nElementsMinAuto set
+			out.writeBoolean(ops.nElementsMinAuto);
+			out.writeInt(ops.nElementsMin);
+			out.writeInt(ops.nElementsMax);
+			// fixed parameters and bounds
+			for (int i = 0; i < 7; i++) {
+				out.writeDouble(ops.paramsAuto[i] ? Double.NaN : ops.params[i]);
+			}
+			out.writeBoolean(ops.boundedFit);
+			if (ops.boundedFit) {
+				for (int i = 0; i < 7; i++) {
+					out.writeDouble(ops.paramsMin[i]);
+					out.writeDouble(ops.paramsMax[i]);
+				}
+			}
+			// model selection
+			out.writeBoolean(ops.modelAutoSelect);
+			out.writeInt(ops.modelAutoSelect ? -1 : ops.modelID);
+			out.writeBoolean(ops.exhaustive);
+			out.writeInt(ops.vectorFitPoles);
+			out.writeBoolean(ops.skinAutoSelect);
+			if (ops.skinAutoSelect) {
+				out.writeInt(ops.skinEvalBudget);
+				out.writeLong(ops.skinTimeBudget);
+			}
+			// fit engine
+			out.writeInt(ops.fitEngine.ordinal());
+			out.writeInt(ops.parameterSpace.ordinal());
+			out.writeInt(ops.convergenceWindow);
+			out.writeDouble(ops.convergenceTolerance);
+			out.writeInt(ops.multiStarts);
+			out.writeDouble(ops.multiStartSpread);
+			out.writeBoolean(ops.deterministic);
+			out.writeLong(ops.deterministic ? ops.randomSeed : 0);
+			out.writeBoolean(ops.coarseToFine);
+			if (ops.coarseToFine) {
+				for (int n : ops.coarseLevels) {
+					out.writeInt(n);
+				}
+			}
+			// error metric
+			out.writeInt(ops.errorMetric.ordinal());
+			out.writeInt(ops.errorWeighting.ordinal());
+			out.writeDouble(ops.huberDelta);
+			out.flush();
+
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes.toByteArray());
+			StringBuilder sb = new StringBuilder(2 * hash.length);
+			for (byte b : hash) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		} catch (IOException | NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Loads the entries of the cache file, one entry per line: key, circuit
+	 * type, z0 and the seven parameters, separated by spaces
+	 */
+	private void load() {
+		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				String[] tok = line.trim().split(" ");
+				if (tok.length != 10)
+					continue;
+				double[] p = new double[7];
+				for (int i = 0; i < 7; i++) {
+					p[i] = Double.parseDouble(tok[3 + i]);
+				}
+				entries.put(tok[0], new CachedFit(CircuitType.valueOf(tok[1]), Double.parseDouble(tok[2]), p));
+			}
+		} catch (Exception e) {
+			System.err.println("Error in loading the fit cache: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes all entries to the cache file, least recently used first
+	 */
+	private void save() {
+		try (PrintWriter pw = new PrintWriter(new FileWriter(file))) {
+			for (Map.Entry<String, CachedFit> e : entries.entrySet()) {
+				StringBuilder sb = new StringBuilder();
+				sb.append(e.getKey()).append(' ');
+				sb.append(e.getValue().circuitType.name()).append(' ');
+				sb.append(e.getValue().z0);
+				for (double p : e.getValue().parameters) {
+					sb.append(' ').append(p);
+				}
+				pw.println(sb.toString());
+			}
+		} catch (IOException e) {
+			System.err.println("Error in saving the fit cache: " + e.getMessage());
+		}
+	}
+
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Returns the cached equivalent circuit of a measurement, ready to be
+	 * plotted
+	 * 
+	 * @param rfData
+	 *            measurement data
+	 * @param ops
+	 *            options of the fit
+	 * @return new equivalent circuit, null if not cached
+	 */
+	public MCEqCircuit get(RFData rfData, MCOptions ops) {
+		MCEqCircuit cached;
+		synchronized (this) {
+			CachedFit e = entries.get(key(rfData, ops));
+			if (e == null) {
+				return null;
+			}
+			if (e.circuit == null) {
+				e.circuit = new MCEqCircuit(e.circuitType, e.parameters);
+				e.circuit.setWVector(MCUtil.applyMCOpsToF(ops, rfData.getfData(), MCUtil.DATA_FORMAT.OMEGA));
+				e.circuit.setZ0(e.z0);
+			}
+			cached = e.circuit;
+		}
+		MCEqCircuit eqc = cached.copy();
+		eqc.setOps(ops);
+		return eqc;
+	}
+
+	/**
+	 * Adds a fitted equivalent circuit to the cache
+	 * 
+	 * @param rfData
+	 *            measurement data
+	 * @param ops
+	 *            options of the fit
+	 * @param eqc
+	 *            fitted equivalent circuit
+	 */
+	public synchronized void put(RFData rfData, MCOptions ops, MCEqCircuit eqc) {
+		entries.put(key(rfData, ops), new CachedFit(eqc.getCircuitType(), eqc.getZ0(), eqc.getParameters()));
+		if (file != null) {
+			save();
+		}
+	}
+
+	/**
+	 * Removes all entries
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		if (file != null) {
+			save();
+		}
+	}
+
+	/**
+	 * Returns the number of cached results
+	 * 
+	 * @return size
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+}
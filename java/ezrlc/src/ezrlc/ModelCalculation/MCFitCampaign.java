@@ -0,0 +1,203 @@
+package ezrlc.ModelCalculation;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import ezrlc.RFData.RFData;
+
+/**
+ * Fits the equivalent circuits of many measurement files at once. Parsing and
+ * result writing run on an I/O pool and overlap with the fits, which run on
+ * the shared MCFitScheduler and are therefore bounded by the number of cores.
+ * The number of files in flight is limited, so a campaign of thousands of
+ * files does not hold all of them in memory. Usage: new MCFitCampaign(ops,
+ * listener).start(files).join();
+ * 
+ * @author noah
+ *
+ */
+public class MCFitCampaign {
+
+	// ================================================================================
+	// Public Data
+	// ================================================================================
+	/**
+	 * Gets called on the I/O pool for every finished file, may write the
+	 * result
+	 */
+	public interface Listener {
+		public void fileDone(Result result) throws Exception;
+	}
+
+	/**
+	 * Result of a single file
+	 */
+	public static class Result {
+		private File file;
+		private MCEqCircuit circuit;
+		private Throwable error;
+
+		private Result(File file, MCEqCircuit circuit, Throwable error) {
+			this.file = file;
+			this.circuit = circuit;
+			this.error = error;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * Returns the fitted circuit
+		 * 
+		 * @return circuit, null if the file failed
+		 */
+		public MCEqCircuit getCircuit() {
+			return circuit;
+		}
+
+		/**
+		 * Returns the reason the file failed
+		 * 
+		 * @return error, null if the file succeeded
+		 */
+		public Throwable getError() {
+			return error;
+		}
+	}
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private MCOptions ops;
+	private Listener listener;
+
+	private ExecutorService ioPool;
+	private Semaphore inFlight;
+	private MCCancelToken cancelToken = new MCCancelToken();
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	/**
+	 * Creates a new campaign with twice as many files in flight as there are
+	 * cores
+	 * 
+	 * @param ops
+	 *            options used for every file
+	 * @param listener
+	 *            gets every result, may be null
+	 */
+	public MCFitCampaign(MCOptions ops, Listener listener) {
+		this(ops, listener, 2 * MCFitScheduler.getPool().getParallelism());
+	}
+
+	/**
+	 * Creates a new campaign
+	 * 
+	 * @param ops
+	 *            options used for every file
+	 * @param listener
+	 *            gets every result, may be null
+	 * @param maxInFlight
+	 *            maximum number of files parsed, fitted or written at once
+	 */
+	public MCFitCampaign(MCOptions ops, Listener listener, int maxInFlight) {
+		this.ops = ops;
+		this.listener = listener;
+		this.inFlight = new Semaphore(Math.max(maxInFlight, 1));
+		this.ioPool = Executors.newCachedThreadPool(new ThreadFactory() {
+			private int ctr = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "MCCampaign-IO-" + ctr++);
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	// ================================================================================
+	// Private Functions
+	// ================================================================================
+	/**
+	 * Parses, fits and reports a single file. The in flight permit is
+	 * released when done.
+	 * 
+	 * @param file
+	 *            measurement file
+	 * @return future of the result
+	 */
+	private CompletableFuture<Result> process(final File file) {
+		return CompletableFuture.supplyAsync(() -> {
+			RFData data = new RFData(file);
+			try {
+				data.parse();
+			} catch (Exception e) {
+				throw new RuntimeException("Error in file parsing: " + file, e);
+			}
+			return data;
+		}, ioPool).thenCompose(data -> {
+			MCWorker worker = new MCWorker(null, "MCCampaign-" + file.getName());
+			worker.setMCOptions(ops);
+			worker.setCancelToken(cancelToken);
+			return worker.calculate(data);
+		}).handle((eqc, ex) -> new Result(file, eqc, ex)).thenApplyAsync(res -> {
+			try {
+				if (listener != null) {
+					listener.fileDone(res);
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			} finally {
+				inFlight.release();
+			}
+			return res;
+		}, ioPool);
+	}
+
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Starts the campaign, files are fed as permits become free
+	 * 
+	 * @param files
+	 *            measurement files
+	 * @return future of all results, same order as the input
+	 */
+	public CompletableFuture<List<Result>> start(final List<File> files) {
+		return CompletableFuture.supplyAsync(() -> {
+			List<CompletableFuture<Result>> futures = new ArrayList<CompletableFuture<Result>>(files.size());
+			for (File file : files) {
+				if (cancelToken.isCancelled())
+					break;
+				inFlight.acquireUninterruptibly();
+				futures.add(process(file));
+			}
+			return futures;
+		}, ioPool).thenCompose(futures -> MCFitScheduler.all(futures));
+	}
+
+	/**
+	 * Cancels all running fits and stops feeding files
+	 */
+	public void cancel() {
+		cancelToken.cancel();
+	}
+
+	/**
+	 * Releases the I/O threads, call after the campaign is done
+	 */
+	public void shutdown() {
+		ioPool.shutdown();
+	}
+
+}
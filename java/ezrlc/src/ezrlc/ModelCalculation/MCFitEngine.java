@@ -0,0 +1,29 @@
+package ezrlc.ModelCalculation;
+
+import ezrlc.util.Complex;
+
+/**
+ * Fitting engine used by an equivalent circuit to optimize its parameters to
+ * measured data
+ * 
+ * @author noah
+ *
+ */
+public interface MCFitEngine {
+
+	/**
+	 * Optimizes the circuit parameters to the given scattering data. The
+	 * engine is allowed to change the circuit parameters while evaluating, the
+	 * caller stores the returned parameters.
+	 * 
+	 * @param circuit
+	 *            equivalent circuit to be optimized
+	 * @param ys
+	 *            complex scattering parameters to which the model is optimized
+	 * @param space
+	 *            search space holding the initial guess
+	 * @return fit result holding the optimized parameter array [7]
+	 */
+	public MCFitResult fit(MCEqCircuit circuit, Complex[] ys, MCSearchSpace space);
+
+}
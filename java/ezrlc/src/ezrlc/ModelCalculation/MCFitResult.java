@@ -0,0 +1,89 @@
+package ezrlc.ModelCalculation;
+
+/**
+ * Result of a single fit, holds the optimized parameters and tells why and
+ * after how many evaluations the fitting engine stopped
+ * 
+ * @author noah
+ *
+ */
+public class MCFitResult {
+
+	// ================================================================================
+	// Public Data
+	// ================================================================================
+	public enum StopReason {
+		CONVERGED, STALLED, MAX_EVAL, ABANDONED, TIME_BUDGET, CANCELLED, FAILED, NOT_RUN
+	};
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private double[] parameters;
+	private StopReason stopReason;
+	private int evaluations;
+	private int iterations;
+	private double error;
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	/**
+	 * Creates a new fit result
+	 * 
+	 * @param parameters
+	 *            optimized parameter array [7]
+	 * @param stopReason
+	 *            reason the engine stopped
+	 * @param evaluations
+	 *            number of error function evaluations
+	 * @param iterations
+	 *            number of optimizer iterations, 0 if not known
+	 * @param error
+	 *            error of the optimized parameters
+	 */
+	public MCFitResult(double[] parameters, StopReason stopReason, int evaluations, int iterations, double error) {
+		this.parameters = new double[parameters.length];
+		System.arraycopy(parameters, 0, this.parameters, 0, parameters.length);
+		this.stopReason = stopReason;
+		this.evaluations = evaluations;
+		this.iterations = iterations;
+		this.error = error;
+	}
+
+	// ================================================================================
+	// Getter and Setter Functions
+	// ================================================================================
+	/**
+	 * Returns a copy of the optimized parameters
+	 * 
+	 * @return parameter array [7]
+	 */
+	public double[] getParameters() {
+		double[] res = new double[parameters.length];
+		System.arraycopy(parameters, 0, res, 0, parameters.length);
+		return res;
+	}
+
+	public StopReason getStopReason() {
+		return stopReason;
+	}
+
+	public int getEvaluations() {
+		return evaluations;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public double getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return stopReason + " after " + evaluations + " evaluations, error " + error;
+	}
+
+}
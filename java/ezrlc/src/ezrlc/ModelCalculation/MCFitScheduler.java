@@ -0,0 +1,116 @@
+package ezrlc.ModelCalculation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Supplier;
+
+import ezrlc.util.Complex;
+
+/**
+ * Shared executor of all fits. Holds one fork join pool sized to the number
+ * of cores, so any number of workers can run at once without oversubscribing
+ * the machine.
+ * 
+ * @author noah
+ *
+ */
+public class MCFitScheduler {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+			new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+				@Override
+				public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+					ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+					t.setName("MCFit-" + t.getPoolIndex());
+					t.setDaemon(true);
+					return t;
+				}
+			}, null, false);
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	private MCFitScheduler() {
+	}
+
+	// ================================================================================
+	// Public static Functions
+	// ================================================================================
+	/**
+	 * Returns the shared pool
+	 * 
+	 * @return fork join pool
+	 */
+	public static ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Runs a task on the shared pool
+	 * 
+	 * @param task
+	 *            task
+	 * @return future of the task result
+	 */
+	public static <T> CompletableFuture<T> supply(Supplier<T> task) {
+		return CompletableFuture.supplyAsync(task, pool);
+	}
+
+	/**
+	 * Optimizes a circuit on the shared pool
+	 * 
+	 * @param circuit
+	 *            circuit to be optimized
+	 * @param ys
+	 *            complex scattering parameters to which the model is optimized
+	 * @return future of the optimized circuit
+	 */
+	public static CompletableFuture<MCEqCircuit> optimize(final MCEqCircuit circuit, final Complex[] ys) {
+		return supply(() -> {
+			circuit.optimize(ys);
+			return circuit;
+		});
+	}
+
+	/**
+	 * Optimizes all circuits of a list concurrently on the shared pool
+	 * 
+	 * @param circuits
+	 *            circuits to be optimized
+	 * @param ys
+	 *            complex scattering parameters to which the models are
+	 *            optimized
+	 * @return future of the optimized circuits, same order as the input
+	 */
+	public static CompletableFuture<List<MCEqCircuit>> optimizeAll(List<MCEqCircuit> circuits, Complex[] ys) {
+		List<CompletableFuture<MCEqCircuit>> futures = new ArrayList<CompletableFuture<MCEqCircuit>>(circuits.size());
+		for (MCEqCircuit c : circuits) {
+			futures.add(optimize(c, ys));
+		}
+		return all(futures);
+	}
+
+	/**
+	 * Combines a list of futures to one future of the list of results
+	 * 
+	 * @param futures
+	 *            futures
+	 * @return future of the results, same order as the input
+	 */
+	public static <T> CompletableFuture<List<T>> all(final List<CompletableFuture<T>> futures) {
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).thenApply(v -> {
+			List<T> res = new ArrayList<T>(futures.size());
+			for (CompletableFuture<T> f : futures) {
+				res.add(f.join());
+			}
+			return res;
+		});
+	}
+
+}
@@ -0,0 +1,85 @@
+package ezrlc.ModelCalculation;
+
+import ezrlc.RFData.RFData;
+import ezrlc.util.Complex;
+
+/**
+ * Holds what a refit of an already fitted circuit can reuse: the measured
+ * data filtered by the options and the scaled reference resistance. The
+ * parameters of a fitted circuit are close to the optimum, so a refit starts
+ * with small relative steps.
+ * 
+ * @author noah
+ *
+ */
+public class MCFitWorkspace {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private RFData rfData;
+	private MCOptions ops;
+
+	private Complex[] ys;
+	private double rref;
+
+	/**
+	 * Initial relative step of a refit
+	 */
+	private double relativeStep = 0.01;
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	/**
+	 * Creates a new workspace
+	 * 
+	 * @param rfData
+	 *            measurement the data was taken from
+	 * @param ops
+	 *            options the data was filtered with
+	 * @param ys
+	 *            filtered scattering data
+	 * @param rref
+	 *            scaled reference resistance
+	 */
+	public MCFitWorkspace(RFData rfData, MCOptions ops, Complex[] ys, double rref) {
+		this.rfData = rfData;
+		this.ops = ops;
+		this.ys = ys;
+		this.rref = rref;
+	}
+
+	// ================================================================================
+	// Getter and Setter Functions
+	// ================================================================================
+	public Complex[] getYs() {
+		return ys;
+	}
+
+	public double getRref() {
+		return rref;
+	}
+
+	public double getRelativeStep() {
+		return relativeStep;
+	}
+
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Checks if the workspace was built from the given measurement and
+	 * options
+	 * 
+	 * @param rfData
+	 *            measurement
+	 * @param ops
+	 *            options
+	 * @return true if the workspace can be reused
+	 */
+	public boolean matches(RFData rfData, MCOptions ops) {
+		return this.rfData == rfData && this.ops == ops;
+	}
+
+}
@@ -0,0 +1,182 @@
+package ezrlc.ModelCalculation;
+
+import java.util.Arrays;
+
+import ezrlc.util.Complex;
+import ezrlc.util.ComplexArrayView;
+import ezrlc.util.DoubleArrayView;
+
+/**
+ * Frequency range of the measured data selected by the options, as offset and
+ * length into the data arrays. The limits are found once by binary search on
+ * the ascending frequency vector, every data array of the measurement is then
+ * cut by the same window.
+ * 
+ * @author noah
+ *
+ */
+public class MCFrequencyWindow {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private DoubleArrayView f;
+	private int offset;
+	private int length;
+	private boolean valid;
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	/**
+	 * Creates the window of the options on the frequency vector
+	 * 
+	 * @param ops
+	 *            MCOptions given by user
+	 * @param f
+	 *            ascending frequency data in Hertz, shared with the window
+	 */
+	public MCFrequencyWindow(MCOptions ops, double[] f) {
+		this(ops, new DoubleArrayView(f));
+	}
+
+	/**
+	 * Creates the window of the options on the frequency vector
+	 * 
+	 * @param ops
+	 *            MCOptions given by user
+	 * @param f
+	 *            ascending frequency data in Hertz
+	 */
+	public MCFrequencyWindow(MCOptions ops, DoubleArrayView f) {
+		this.f = f;
+		this.valid = (ops.fMax >= ops.fMin);
+
+		double wMin = (2.0 * Math.PI * ops.fMin) + Double.MIN_VALUE;
+		double wMax = 2.0 * Math.PI * ops.fMax;
+		if (ops.fMaxAuto)
+			wMax = Double.MAX_VALUE;
+		if (ops.fMinAuto)
+			wMin = Double.MIN_VALUE;
+
+		// first point with w >= wMin and first point with w > wMax
+		int idxLow = firstIndex(f, wMin, false);
+		int idxHigh = firstIndex(f, wMax, true);
+		this.offset = idxLow;
+		this.length = Math.max(idxHigh - idxLow, 0);
+	}
+
+	// ================================================================================
+	// Private Functions
+	// ================================================================================
+	/**
+	 * Binary search for the first point above a limit in omega
+	 * 
+	 * @param f
+	 *            ascending frequency data in Hertz
+	 * @param limit
+	 *            limit in omega
+	 * @param inclusive
+	 *            true if points equal to the limit are below it
+	 * @return first index above the limit, f.length if there is none
+	 */
+	private static int firstIndex(DoubleArrayView f, double limit, boolean inclusive) {
+		int lo = 0;
+		int hi = f.length();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			double w = 2.0 * Math.PI * f.get(mid);
+			if (w < limit || (inclusive && w == limit)) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	// ================================================================================
+	// Getter and Setter Functions
+	// ================================================================================
+	/**
+	 * Returns the index of the first point in the window
+	 * 
+	 * @return offset
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Returns the number of points in the window
+	 * 
+	 * @return length
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Checks if the frequency range of the options is valid
+	 * 
+	 * @return false if the maximum frequency is below the minimum
+	 */
+	public boolean isValid() {
+		return valid;
+	}
+
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Returns the frequency vector in the window
+	 * 
+	 * @param format
+	 *            Data output format omega or hertz
+	 * @return frequency vector
+	 */
+	public double[] getF(MCUtil.DATA_FORMAT format) {
+		if (format == MCUtil.DATA_FORMAT.HZ) {
+			return f.subView(offset, offset + length).toArray();
+		}
+		double[] res = new double[length];
+		for (int i = 0; i < length; i++) {
+			res[i] = 2.0 * Math.PI * f.get(offset + i);
+		}
+		return res;
+	}
+
+	/**
+	 * Cuts data to the window
+	 * 
+	 * @param data
+	 *            data of the same length as the frequency vector
+	 * @return data in the window
+	 */
+	public double[] slice(double[] data) {
+		return Arrays.copyOfRange(data, offset, offset + length);
+	}
+
+	/**
+	 * Cuts data to the window, the complex values are shared
+	 * 
+	 * @param data
+	 *            data of the same length as the frequency vector
+	 * @return data in the window
+	 */
+	public Complex[] slice(Complex[] data) {
+		return Arrays.copyOfRange(data, offset, offset + length);
+	}
+
+	/**
+	 * Returns the part of the data in the window, sharing the storage
+	 * 
+	 * @param data
+	 *            data of the same length as the frequency vector
+	 * @return read only view of the data in the window
+	 */
+	public ComplexArrayView view(ComplexArrayView data) {
+		return data.subView(offset, offset + length);
+	}
+
+}
@@ -0,0 +1,387 @@
+package ezrlc.ModelCalculation;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.QRDecomposition;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.commons.math3.linear.SingularMatrixException;
+
+import ezrlc.ModelCalculation.MCEqCircuit.CircuitType;
+import ezrlc.util.Complex;
+
+/**
+ * Least square initial guess for every equivalent circuit. The impedance of a
+ * model without skin effect is a rational function N(s)/D(s) with a known
+ * structure. Its coefficients are fitted to all measured points with the
+ * linearized equation Z*D - N = 0 (Levy), iterated with the weight 1/|D| of
+ * the previous solution (Sanathanan-Koerner) and relative to |Z|, so every
+ * decade of impedance counts the same. The element values follow from the
+ * coefficients. Skin effect models take the guess of their base model.
+ * 
+ * @author noah
+ *
+ */
+public class MCInitialGuess {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	/**
+	 * Number of Sanathanan-Koerner iterations, the first one is plain Levy
+	 */
+	private static final int nIterations = 5;
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	public MCInitialGuess() {
+	}
+
+	// ================================================================================
+	// Private Functions
+	// ================================================================================
+	/**
+	 * Fits the coefficients of a rational function to the impedance data. The
+	 * frequency is normalized to wn, so the coefficients are of the same order
+	 * of magnitude.
+	 * 
+	 * @param w
+	 *            frequency vector in omega
+	 * @param yz
+	 *            measured impedance data
+	 * @param wn
+	 *            normalization frequency in omega
+	 * @param num
+	 *            exponents of the numerator coefficients
+	 * @param den
+	 *            exponents of the denominator coefficients
+	 * @param fixed
+	 *            exponent of the denominator coefficient fixed to one
+	 * @return {numerator, denominator} coefficients, indexed by exponent of
+	 *         the normalized s, null if the system is singular
+	 */
+	private static double[][] levy(double[] w, Complex[] yz, double wn, int[] num, int[] den, int fixed) {
+		int n = w.length;
+		int m = num.length + den.length - 1;
+		double[] b = new double[max(num) + 1];
+		double[] a = new double[max(den) + 1];
+		double[] dAbs = new double[n];
+		Arrays.fill(dAbs, 1.0);
+
+		for (int it = 0; it < nIterations; it++) {
+			Array2DRowRealMatrix mat = new Array2DRowRealMatrix(2 * n, m);
+			double[] rhs = new double[2 * n];
+			for (int i = 0; i < n; i++) {
+				double x = w[i] / wn;
+				double zr = yz[i].re();
+				double zi = yz[i].im();
+				double zAbs = yz[i].abs();
+				if (Double.isNaN(zAbs) || Double.isInfinite(zAbs) || dAbs[i] == 0.0)
+					continue;
+				double g = 1.0 / (dAbs[i] * ((zAbs > 0.0) ? zAbs : 1.0));
+				int col = 0;
+				// numerator: + b_k * s^k
+				for (int k : num) {
+					double[] sk = sPow(x, k);
+					mat.setEntry(2 * i, col, g * sk[0]);
+					mat.setEntry(2 * i + 1, col, g * sk[1]);
+					col++;
+				}
+				// denominator: - a_k * Z * s^k
+				for (int k : den) {
+					double[] sk = sPow(x, k);
+					double re = zr * sk[0] - zi * sk[1];
+					double im = zr * sk[1] + zi * sk[0];
+					if (k == fixed) {
+						rhs[2 * i] = g * re;
+						rhs[2 * i + 1] = g * im;
+					} else {
+						mat.setEntry(2 * i, col, -g * re);
+						mat.setEntry(2 * i + 1, col, -g * im);
+						col++;
+					}
+				}
+			}
+
+			// scale the columns to unit norm
+			double[] scale = new double[m];
+			for (int j = 0; j < m; j++) {
+				scale[j] = mat.getColumnVector(j).getNorm();
+				if (scale[j] == 0.0)
+					return null;
+				for (int i = 0; i < 2 * n; i++) {
+					mat.setEntry(i, j, mat.getEntry(i, j) / scale[j]);
+				}
+			}
+			RealVector sol;
+			try {
+				sol = new QRDecomposition(mat).getSolver().solve(new ArrayRealVector(rhs, false));
+			} catch (SingularMatrixException e) {
+				return null;
+			}
+
+			int col = 0;
+			for (int k : num) {
+				b[k] = sol.getEntry(col) / scale[col];
+				col++;
+			}
+			for (int k : den) {
+				if (k == fixed) {
+					a[k] = 1.0;
+				} else {
+					a[k] = sol.getEntry(col) / scale[col];
+					col++;
+				}
+			}
+
+			// weights of the next iteration
+			for (int i = 0; i < n; i++) {
+				double x = w[i] / wn;
+				double re = 0, im = 0;
+				for (int k : den) {
+					double[] sk = sPow(x, k);
+					re += a[k] * sk[0];
+					im += a[k] * sk[1];
+				}
+				dAbs[i] = Math.hypot(re, im);
+			}
+		}
+		return new double[][] { b, a };
+	}
+
+	/**
+	 * Returns (jx)^k
+	 * 
+	 * @param x
+	 *            normalized frequency
+	 * @param k
+	 *            exponent
+	 * @return {real, imaginary}
+	 */
+	private static double[] sPow(double x, int k) {
+		double v = Math.pow(x, k);
+		switch (k % 4) {
+		case 0:
+			return new double[] { v, 0 };
+		case 1:
+			return new double[] { 0, v };
+		case 2:
+			return new double[] { -v, 0 };
+		default:
+			return new double[] { 0, -v };
+		}
+	}
+
+	private static int max(int[] a) {
+		int res = 0;
+		for (int v : a) {
+			res = Math.max(res, v);
+		}
+		return res;
+	}
+
+	/**
+	 * Returns the geometric mean of the positive frequencies
+	 * 
+	 * @param w
+	 *            frequency vector in omega
+	 * @return normalization frequency
+	 */
+	private static double normFrequency(double[] w) {
+		double sum = 0;
+		int n = 0;
+		for (double v : w) {
+			if (v > 0) {
+				sum += Math.log(v);
+				n++;
+			}
+		}
+		return (n > 0) ? Math.exp(sum / n) : 1.0;
+	}
+
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Calculates the initial parameters of a model from all measured points
+	 * 
+	 * @param type
+	 *            circuit type
+	 * @param w
+	 *            frequency vector in omega
+	 * @param yz
+	 *            measured impedance data
+	 * @return parameter array [7], null if the model could not be solved
+	 */
+	public static double[] guess(CircuitType type, double[] w, Complex[] yz) {
+		int t = type.ordinal();
+		if (w.length < 2) {
+			return null;
+		}
+		// skin effect models start at their base model
+		if (t >= MCUtil.nModelSkinStart) {
+			CircuitType base = MCUtil.modelIdxToCircuitType(MCUtil.skinModelBase[t - MCUtil.nModelSkinStart]);
+			double[] p = guess(base, w, yz);
+			return (p == null) ? null : MCUtil.skinSeedParam(base, p, w[w.length - 1] / (2.0 * Math.PI));
+		}
+
+		double wn = normFrequency(w);
+		double[] p = new double[7];
+		double[][] c;
+		double[] b, a;
+		double k;
+
+		// L and C are calculated in normalized frequency first
+		switch (type) {
+		case MODEL0: // R + L
+			c = levy(w, yz, wn, new int[] { 0, 1 }, new int[] { 0 }, 0);
+			if (c == null)
+				return null;
+			b = c[0];
+			p[0] = b[0];
+			p[4] = b[1];
+			break;
+		case MODEL1: // R || L
+			c = levy(w, yz, wn, new int[] { 1 }, new int[] { 0, 1 }, 0);
+			if (c == null)
+				return null;
+			b = c[0];
+			a = c[1];
+			p[4] = b[1];
+			p[0] = b[1] / a[1];
+			break;
+		case MODEL2: // R + C
+			c = levy(w, yz, wn, new int[] { 0, 1 }, new int[] { 1 }, 1);
+			if (c == null)
+				return null;
+			b = c[0];
+			p[0] = b[1];
+			p[5] = 1.0 / b[0];
+			break;
+		case MODEL3: // R || C
+			c = levy(w, yz, wn, new int[] { 0 }, new int[] { 0, 1 }, 0);
+			if (c == null)
+				return null;
+			b = c[0];
+			a = c[1];
+			p[0] = b[0];
+			p[5] = a[1] / b[0];
+			break;
+		case MODEL4: // R + L + C
+			c = levy(w, yz, wn, new int[] { 0, 1, 2 }, new int[] { 1 }, 1);
+			if (c == null)
+				return null;
+			b = c[0];
+			p[0] = b[1];
+			p[4] = b[2];
+			p[5] = 1.0 / b[0];
+			break;
+		case MODEL5: // R || L || C
+			c = levy(w, yz, wn, new int[] { 1 }, new int[] { 0, 1, 2 }, 0);
+			if (c == null)
+				return null;
+			b = c[0];
+			a = c[1];
+			p[4] = b[1];
+			p[0] = b[1] / a[1];
+			p[5] = a[2] / b[1];
+			break;
+		case MODEL6: // (R + L) || C
+			c = levy(w, yz, wn, new int[] { 0, 1 }, new int[] { 0, 1, 2 }, 0);
+			if (c == null)
+				return null;
+			b = c[0];
+			a = c[1];
+			p[0] = b[0];
+			p[4] = b[1];
+			// a1 = C*R and a2 = C*L
+			p[5] = (a[1] * b[0] + a[2] * b[1]) / (b[0] * b[0] + b[1] * b[1]);
+			break;
+		case MODEL7: // (R || C) + L
+			c = levy(w, yz, wn, new int[] { 0, 1, 2 }, new int[] { 0, 1 }, 0);
+			if (c == null)
+				return null;
+			b = c[0];
+			a = c[1];
+			p[0] = b[0];
+			p[4] = b[1];
+			// a1 = C*R and b2 = C*L*R
+			p[5] = (a[1] * b[0] + b[2] * b[1] * b[0]) / (b[0] * b[0] + b[1] * b[1] * b[0] * b[0]);
+			break;
+		case MODEL8: // (R0 || C) + R1
+			c = levy(w, yz, wn, new int[] { 0, 1 }, new int[] { 0, 1 }, 0);
+			if (c == null)
+				return null;
+			b = c[0];
+			a = c[1];
+			p[3] = b[1] / a[1];
+			p[0] = b[0] - p[3];
+			p[5] = a[1] / p[0];
+			break;
+		case MODEL9:
+			c = levy(w, yz, wn, new int[] { 0, 1, 2 }, new int[] { 0, 1 }, 0);
+			if (c == null)
+				return null;
+			b = c[0];
+			a = c[1];
+			p[4] = b[2] / a[1];
+			p[0] = (b[1] - p[4]) / a[1];
+			p[3] = b[0] - p[0];
+			p[5] = a[1] / p[3];
+			break;
+		case MODEL10:
+			c = levy(w, yz, wn, new int[] { 0, 1, 2 }, new int[] { 0, 1, 2 }, 0);
+			if (c == null)
+				return null;
+			b = c[0];
+			a = c[1];
+			p[3] = b[0];
+			p[4] = b[1] - p[3] * a[1];
+			p[0] = p[4] / a[1];
+			p[5] = a[2] / p[4];
+			break;
+		case MODEL11:
+			c = levy(w, yz, wn, new int[] { 0, 1 }, new int[] { 0, 1, 2 }, 0);
+			if (c == null)
+				return null;
+			b = c[0];
+			a = c[1];
+			p[5] = a[2] / b[1];
+			// L / (R0 + R1)
+			k = a[1] - p[5] * b[0];
+			p[0] = b[1] / k;
+			p[3] = b[0] * p[0] / (p[0] - b[0]);
+			p[4] = k * (p[0] + p[3]);
+			break;
+		case MODEL12:
+			c = levy(w, yz, wn, new int[] { 0, 1, 2 }, new int[] { 1, 2, 3 }, 1);
+			if (c == null)
+				return null;
+			b = c[0];
+			a = c[1];
+			// C0 + C1
+			k = 1.0 / b[0];
+			p[5] = a[3] / b[2];
+			p[6] = k - p[5];
+			p[4] = b[2] * k / p[6];
+			p[0] = b[1] * k / p[6];
+			break;
+		default:
+			return null;
+		}
+
+		// back to the measured frequency
+		p[4] = p[4] / wn;
+		p[5] = p[5] / wn;
+		p[6] = p[6] / wn;
+		for (int i = 0; i < 7; i++) {
+			if (Double.isNaN(p[i]) || Double.isInfinite(p[i]))
+				return null;
+			p[i] = Math.abs(p[i]);
+		}
+		return p;
+	}
+
+}
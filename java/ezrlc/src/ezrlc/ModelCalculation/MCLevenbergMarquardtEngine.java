@@ -0,0 +1,144 @@
+package ezrlc.ModelCalculation;
+
+import org.apache.commons.math3.exception.ConvergenceException;
+import org.apache.commons.math3.exception.TooManyEvaluationsException;
+import org.apache.commons.math3.exception.TooManyIterationsException;
+import org.apache.commons.math3.fitting.leastsquares.LeastSquaresBuilder;
+import org.apache.commons.math3.fitting.leastsquares.LeastSquaresOptimizer.Optimum;
+import org.apache.commons.math3.fitting.leastsquares.LeastSquaresProblem;
+import org.apache.commons.math3.fitting.leastsquares.LevenbergMarquardtOptimizer;
+import org.apache.commons.math3.fitting.leastsquares.MultivariateJacobianFunction;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.commons.math3.util.Pair;
+
+import ezrlc.ModelCalculation.MCFitResult.StopReason;
+import ezrlc.util.Complex;
+
+/**
+ * Levenberg-Marquardt fitting engine, minimizes the error metric of the circuit
+ * options through its residuals, real and imaginary parts stacked into one
+ * vector
+ * 
+ * @author noah
+ *
+ */
+public class MCLevenbergMarquardtEngine implements MCFitEngine {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private int maxEval = 10000;
+
+	/**
+	 * Relative step used for the finite difference jacobian
+	 */
+	private double diffStep = 1e-7;
+
+	private LevenbergMarquardtOptimizer optimizer;
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	/**
+	 * Creates a new Levenberg-Marquardt engine with the default tolerances
+	 */
+	public MCLevenbergMarquardtEngine() {
+		optimizer = new LevenbergMarquardtOptimizer();
+	}
+
+	// ================================================================================
+	// Interface methods
+	// ================================================================================
+	@Override
+	public MCFitResult fit(final MCEqCircuit circuit, Complex[] ys, final MCSearchSpace space) {
+		double[] start = space.getStart();
+		final double[] best = new double[start.length];
+		final double[] bestCost = { Double.POSITIVE_INFINITY };
+		final int[] evaluations = { 0 };
+		System.arraycopy(start, 0, best, 0, start.length);
+
+		// the residuals already hold the delta to the measurement
+		final MCErrorMetric metric = new MCErrorMetric(circuit.getOps(), ys, circuit.getW(), circuit.getZ0());
+		final double[] target = new double[2 * ys.length];
+
+		MultivariateJacobianFunction model = new MultivariateJacobianFunction() {
+			@Override
+			public Pair<RealVector, RealMatrix> value(RealVector point) {
+				double[] p = point.toArray();
+				double[] value = residual(circuit, metric, space, p);
+				evaluations[0] += 1 + p.length;
+
+				// remember the best point
+				double cost = 0;
+				for (int i = 0; i < value.length; i++) {
+					cost += Math.pow(value[i] - target[i], 2);
+				}
+				if (cost < bestCost[0]) {
+					bestCost[0] = cost;
+					System.arraycopy(p, 0, best, 0, p.length);
+				}
+
+				// forward differences for every parameter
+				double[][] jacobian = new double[value.length][p.length];
+				for (int j = 0; j < p.length; j++) {
+					double h = diffStep * Math.max(Math.abs(p[j]), Double.MIN_NORMAL);
+					double tmp = p[j];
+					p[j] = tmp + h;
+					double[] shifted = residual(circuit, metric, space, p);
+					p[j] = tmp;
+					for (int i = 0; i < value.length; i++) {
+						jacobian[i][j] = (shifted[i] - value[i]) / h;
+					}
+				}
+				return new Pair<RealVector, RealMatrix>(new ArrayRealVector(value, false),
+						new Array2DRowRealMatrix(jacobian, false));
+			}
+		};
+
+		LeastSquaresProblem problem = new LeastSquaresBuilder().start(start).model(model).target(target)
+				.maxEvaluations(maxEval).maxIterations(maxEval).lazyEvaluation(false).build();
+		try {
+			Optimum optimum = optimizer.optimize(problem);
+			return new MCFitResult(space.toParameters(optimum.getPoint().toArray()), StopReason.CONVERGED,
+					evaluations[0], optimum.getIterations(), optimum.getCost() * optimum.getCost());
+		} catch (TooManyEvaluationsException | TooManyIterationsException ex) {
+			// continue with the best point seen so far
+			return new MCFitResult(space.toParameters(best), StopReason.MAX_EVAL, evaluations[0], 0, bestCost[0]);
+		} catch (MCCancelledException ex) {
+			return new MCFitResult(space.toParameters(best), StopReason.CANCELLED, evaluations[0], 0, bestCost[0]);
+		} catch (ConvergenceException ex) {
+			return new MCFitResult(space.toParameters(best), StopReason.FAILED, evaluations[0], 0, bestCost[0]);
+		}
+	}
+
+	// ================================================================================
+	// Private Functions
+	// ================================================================================
+	/**
+	 * Evaluates the circuit at the given search vector and returns the stacked
+	 * residuals of the error metric
+	 * 
+	 * @param circuit
+	 *            equivalent circuit
+	 * @param metric
+	 *            error metric of the fit
+	 * @param space
+	 *            search space
+	 * @param x
+	 *            search vector
+	 * @return real parts followed by imaginary parts
+	 * @throws MCCancelledException
+	 *             if the cancel token of the circuit is cancelled
+	 */
+	private static double[] residual(MCEqCircuit circuit, MCErrorMetric metric, MCSearchSpace space, double[] x) {
+		if (circuit.getCancelToken() != null) {
+			circuit.getCancelToken().check();
+		}
+		circuit.setParameters(space.toParameters(x));
+		return metric.residuals(circuit);
+	}
+
+}
@@ -0,0 +1,384 @@
+package ezrlc.ModelCalculation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.DoubleAccumulator;
+
+import org.apache.commons.math3.exception.TooManyEvaluationsException;
+import org.apache.commons.math3.optim.InitialGuess;
+import org.apache.commons.math3.optim.MaxEval;
+import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
+import org.apache.commons.math3.optim.nonlinear.scalar.ObjectiveFunction;
+import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.NelderMeadSimplex;
+import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.SimplexOptimizer;
+
+import ezrlc.ModelCalculation.MCFitResult.StopReason;
+import ezrlc.util.Complex;
+
+/**
+ * Multi-start fitting engine for topologies with many local minima. Seeds a
+ * number of start points around the initial guess (latin hypercube over a few
+ * decades) and runs a simplex from each of them in parallel. The runs are
+ * done in chunks, a run whose error stalls above the best error of all runs
+ * is abandoned early.
+ * 
+ * @author noah
+ *
+ */
+public class MCMultiStartEngine implements MCFitEngine {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private double optRelTh = 1e-12;
+	private double optAbsTh = 1e-15;
+
+	private int starts = 16;
+	private double spread = 1.0;
+
+	private int maxEval = 10000;
+	private int chunkEval = 500;
+
+	private int window = 0;
+	private double tolerance = 0.0;
+
+	/**
+	 * Wall time of a whole fit in ms, 0 for no limit
+	 */
+	private long timeBudget = 0;
+
+	/**
+	 * A run is stalled if its error improved less than this fraction during
+	 * the last chunk
+	 */
+	private double stallTolerance = 0.01;
+
+	/**
+	 * A stalled run is abandoned if its error is this factor above the best
+	 * error of all runs
+	 */
+	private double abandonFactor = 2.0;
+
+	/**
+	 * A run with an error at or below this value is converged, 0 to disable
+	 */
+	private double errorFloor = 0.0;
+
+	/**
+	 * Deterministic runs use a fixed seed and are never stopped by the wall
+	 * time or the progress of other runs
+	 */
+	private boolean deterministic = false;
+	private long seed = 0;
+
+	private ForkJoinPool pool;
+	private Random random = new Random();
+
+	/**
+	 * Best error shared with other fits, null if every fit has its own
+	 */
+	private DoubleAccumulator sharedBest;
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	/**
+	 * Creates a new multi-start engine with the default settings, running on
+	 * the shared fit scheduler
+	 */
+	public MCMultiStartEngine() {
+		this.pool = MCFitScheduler.getPool();
+	}
+
+	/**
+	 * Creates a new multi-start engine
+	 * 
+	 * @param starts
+	 *            number of start points, including the initial guess
+	 * @param spread
+	 *            start points are spread +/- this number of decades around
+	 *            the initial guess
+	 */
+	public MCMultiStartEngine(int starts, double spread) {
+		this();
+		this.starts = Math.max(starts, 1);
+		this.spread = spread;
+	}
+
+	// ================================================================================
+	// Getter and Setter Functions
+	// ================================================================================
+	/**
+	 * Returns the number of start points
+	 * 
+	 * @return start points, including the initial guess
+	 */
+	public int getStarts() {
+		return starts;
+	}
+
+	/**
+	 * Sets the pool the runs are executed on
+	 * 
+	 * @param pool
+	 *            fork join pool
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Sets the maximum number of evaluations of a single run
+	 * 
+	 * @param maxEval
+	 *            evaluations
+	 */
+	public void setMaxEval(int maxEval) {
+		this.maxEval = maxEval;
+	}
+
+	/**
+	 * Stops a run early if its error stalls
+	 * 
+	 * @param window
+	 *            number of iterations the improvement is measured over, 0
+	 *            disables early stopping
+	 * @param tolerance
+	 *            minimal relative improvement over the window
+	 */
+	public void setConvergenceWindow(int window, double tolerance) {
+		this.window = window;
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Sets the wall time of a whole fit, all runs stop after their current
+	 * chunk if the time is up
+	 * 
+	 * @param ms
+	 *            time in ms, 0 for no limit
+	 */
+	public void setTimeBudget(long ms) {
+		this.timeBudget = ms;
+	}
+
+	/**
+	 * Stops a run as soon as its error reaches the floor. An error that shrinks
+	 * steadily towards zero never stalls, the floor bounds such runs.
+	 * 
+	 * @param floor
+	 *            error floor, 0 to disable
+	 */
+	public void setErrorFloor(double floor) {
+		this.errorFloor = floor;
+	}
+
+	/**
+	 * Shares the best error with other fits, so runs are abandoned if they
+	 * stall far above the best error of any of them
+	 * 
+	 * @param best
+	 *            best error, accumulated with Math::min
+	 */
+	public void setSharedBest(DoubleAccumulator best) {
+		this.sharedBest = best;
+	}
+
+	/**
+	 * Makes the fit reproducible: the start points are drawn from a fixed
+	 * seed, the time budget is ignored and runs are not abandoned based on the
+	 * other runs. The result does not depend on the number of cores.
+	 * 
+	 * @param deterministic
+	 *            true for a reproducible fit
+	 * @param seed
+	 *            seed of the start points
+	 */
+	public void setDeterministic(boolean deterministic, long seed) {
+		this.deterministic = deterministic;
+		this.seed = seed;
+	}
+
+	// ================================================================================
+	// Private Functions
+	// ================================================================================
+	/**
+	 * Creates the start points as latin hypercube around the initial guess.
+	 * The first point is the initial guess itself.
+	 * 
+	 * @param space
+	 *            search space
+	 * @return list of search vectors
+	 */
+	private List<double[]> createStartPoints(MCSearchSpace space) {
+		int n = space.getDimension();
+		double[] start = space.getStart();
+		List<double[]> res = new ArrayList<double[]>(starts);
+		res.add(start);
+
+		int m = starts - 1;
+		if (m < 1) {
+			return res;
+		}
+		// every fit draws the same points from its own generator
+		Random random = deterministic ? new Random(seed) : this.random;
+		// one random permutation of the strata per dimension
+		int[][] strata = new int[n][m];
+		for (int d = 0; d < n; d++) {
+			for (int i = 0; i < m; i++) {
+				strata[d][i] = i;
+			}
+			for (int i = m - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int tmp = strata[d][i];
+				strata[d][i] = strata[d][j];
+				strata[d][j] = tmp;
+			}
+		}
+		for (int i = 0; i < m; i++) {
+			double[] decades = new double[n];
+			for (int d = 0; d < n; d++) {
+				double u = (strata[d][i] + random.nextDouble()) / m;
+				decades[d] = (2.0 * u - 1.0) * spread;
+			}
+			res.add(space.scaleBy(start, decades));
+		}
+		return res;
+	}
+
+	/**
+	 * Runs a simplex from the given start point in chunks until it converged,
+	 * ran out of evaluations or is abandoned
+	 * 
+	 * @param circuit
+	 *            circuit used for this run only
+	 * @param ys
+	 *            measured scattering parameters
+	 * @param space
+	 *            search space
+	 * @param start
+	 *            start point
+	 * @param best
+	 *            best error of all runs
+	 * @param deadline
+	 *            System.nanoTime() at which the run stops, Long.MAX_VALUE for
+	 *            no limit
+	 * @return result of this run
+	 */
+	private MCFitResult run(MCEqCircuit circuit, Complex[] ys, MCSearchSpace space, double[] start,
+			DoubleAccumulator best, long deadline) {
+		MCErrorSum errorFunction = new MCErrorSum(ys, circuit, space);
+		MCConvergenceMonitor monitor = new MCConvergenceMonitor(optRelTh, optAbsTh, window, tolerance);
+		SimplexOptimizer optimizer = new SimplexOptimizer(monitor);
+		monitor.setOptimizer(optimizer);
+		double[] x = start;
+		double last = Double.POSITIVE_INFINITY;
+		int iterations = 0;
+		// cancelled before the run started
+		if (circuit.getCancelToken() != null && circuit.getCancelToken().isCancelled()) {
+			return new MCFitResult(space.toParameters(x), StopReason.CANCELLED, 0, 0, Double.POSITIVE_INFINITY);
+		}
+		// time is up before the run started, only evaluate the start point
+		if (System.nanoTime() > deadline) {
+			try {
+				double value = errorFunction.value(x);
+				best.accumulate(value);
+				return new MCFitResult(space.toParameters(x), StopReason.TIME_BUDGET, 1, 0, value);
+			} catch (MCCancelledException ex) {
+				return new MCFitResult(space.toParameters(x), StopReason.CANCELLED, 0, 0, Double.POSITIVE_INFINITY);
+			}
+		}
+		StopReason reason = StopReason.MAX_EVAL;
+		while (errorFunction.getEvaluations() < maxEval) {
+			int chunk = Math.min(chunkEval, maxEval - errorFunction.getEvaluations());
+			monitor.reset();
+			try {
+				optimizer.optimize(new MaxEval(chunk), new ObjectiveFunction(errorFunction), GoalType.MINIMIZE,
+						new InitialGuess(x), new NelderMeadSimplex(space.getStep()));
+				reason = monitor.getStopReason();
+			} catch (TooManyEvaluationsException ex) {
+				reason = StopReason.MAX_EVAL;
+			} catch (MCCancelledException ex) {
+				reason = StopReason.CANCELLED;
+			}
+			iterations += monitor.getIterations();
+			// restart the next chunk from the best point of this run
+			x = errorFunction.getBestPoint(x);
+			double value = errorFunction.getBestValue();
+			best.accumulate(value);
+			// reaching the floor counts as converged whatever ended the chunk
+			if (value <= errorFloor && reason != StopReason.CANCELLED) {
+				reason = StopReason.CONVERGED;
+				break;
+			}
+			if (reason != StopReason.MAX_EVAL) {
+				break;
+			}
+			if (System.nanoTime() > deadline) {
+				reason = StopReason.TIME_BUDGET;
+				break;
+			}
+			// a run without finite error is stalled as well
+			boolean stalled = !((last - value) >= stallTolerance * last);
+			if (stalled && !(value < Double.POSITIVE_INFINITY)) {
+				reason = StopReason.STALLED;
+				break;
+			}
+			if (stalled && deterministic == false && value > abandonFactor * best.get()) {
+				reason = StopReason.ABANDONED;
+				break;
+			}
+			last = value;
+		}
+		return new MCFitResult(space.toParameters(x), reason, errorFunction.getEvaluations(), iterations,
+				errorFunction.getBestValue());
+	}
+
+	// ================================================================================
+	// Interface methods
+	// ================================================================================
+	@Override
+	public MCFitResult fit(final MCEqCircuit circuit, final Complex[] ys, final MCSearchSpace space) {
+		if (space.getDimension() == 0) {
+			return new MCFitResult(space.toParameters(space.getStart()), StopReason.NOT_RUN, 0, 0, Double.NaN);
+		}
+		final DoubleAccumulator best = (sharedBest != null) ? sharedBest
+				: new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+		final long deadline = (timeBudget > 0 && deterministic == false) ? System.nanoTime() + timeBudget * 1000000L
+				: Long.MAX_VALUE;
+
+		// every run works on its own copy of the circuit
+		List<ForkJoinTask<MCFitResult>> tasks = new ArrayList<ForkJoinTask<MCFitResult>>(starts);
+		for (final double[] start : createStartPoints(space)) {
+			final MCEqCircuit c = circuit.copy();
+			tasks.add(pool.submit(new Callable<MCFitResult>() {
+				@Override
+				public MCFitResult call() {
+					return run(c, ys, space, start, best, deadline);
+				}
+			}));
+		}
+
+		// keep the best result
+		MCFitResult res = null;
+		int evaluations = 0;
+		int iterations = 0;
+		boolean cancelled = false;
+		for (ForkJoinTask<MCFitResult> task : tasks) {
+			MCFitResult r = task.join();
+			evaluations += r.getEvaluations();
+			iterations += r.getIterations();
+			cancelled |= r.getStopReason() == StopReason.CANCELLED;
+			if (res == null || r.getError() < res.getError()) {
+				res = r;
+			}
+		}
+		StopReason reason = cancelled ? StopReason.CANCELLED : res.getStopReason();
+		return new MCFitResult(res.getParameters(), reason, evaluations, iterations, res.getError());
+	}
+
+}
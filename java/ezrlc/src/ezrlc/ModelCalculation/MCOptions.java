@@ -1,5 +1,9 @@
 package ezrlc.ModelCalculation;
 
+import ezrlc.ModelCalculation.MCErrorMetric.MetricType;
+import ezrlc.ModelCalculation.MCErrorMetric.Weighting;
+import ezrlc.ModelCalculation.MCSearchSpace.ParameterSpace;
+
 /**
  * Holds the options, given by the user, needed to calculate an equivelant model
  * 
@@ -11,6 +15,10 @@ public class MCOptions {
 	// ================================================================================
 	// Public Data
 	// ================================================================================
+	public enum FitEngineType {
+		SIMPLEX, LEVENBERG_MARQUARDT, BOBYQA, MULTI_START
+	};
+
 	public double fMax;
 	public double fMin;
 	public boolean fMaxAuto;
@@ -23,10 +31,37 @@ public class MCOptions {
 
 	public double[] params = new double[7];
 	public boolean[] paramsAuto = new boolean[7];
+	public double[] paramsMin = new double[7];
+	public double[] paramsMax = new double[7];
+	public boolean boundedFit;
 
 	public boolean modelAutoSelect;
+	public boolean exhaustive;
+	public int vectorFitPoles;
+	public boolean skinAutoSelect;
+	public int skinEvalBudget;
+	public long skinTimeBudget;
 	public int modelID;
 
+	public FitEngineType fitEngine;
+	public ParameterSpace parameterSpace;
+
+	public int convergenceWindow;
+	public double convergenceTolerance;
+
+	public int multiStarts;
+	public double multiStartSpread;
+
+	public boolean deterministic;
+	public long randomSeed;
+
+	public boolean coarseToFine;
+	public int[] coarseLevels;
+
+	public MetricType errorMetric;
+	public Weighting errorWeighting;
+	public double huberDelta;
+
 	// ================================================================================
 	// Constructor
 	// ================================================================================
@@ -41,8 +76,29 @@ public class MCOptions {
 		nElementsMinAuto = true;
 		for (int i = 0; i < 7; i++) {
 			paramsAuto[i] = true;
+			paramsMin[i] = 0.0;
+			paramsMax[i] = Double.POSITIVE_INFINITY;
 		}
+		boundedFit = false;
 		modelAutoSelect = true;
+		exhaustive = false;
+		vectorFitPoles = 0;
+		skinAutoSelect = false;
+		skinEvalBudget = 20000;
+		skinTimeBudget = 2000;
+		fitEngine = FitEngineType.SIMPLEX;
+		parameterSpace = ParameterSpace.LINEAR;
+		convergenceWindow = 100;
+		convergenceTolerance = 1e-8;
+		multiStarts = 16;
+		multiStartSpread = 1.0;
+		deterministic = false;
+		randomSeed = 0;
+		coarseToFine = false;
+		coarseLevels = new int[] { 64, 256 };
+		errorMetric = MetricType.S_MAG;
+		errorWeighting = Weighting.NONE;
+		huberDelta = 0.01;
 	}
 
 }
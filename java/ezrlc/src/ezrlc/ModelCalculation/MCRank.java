@@ -1,7 +1,11 @@
 package ezrlc.ModelCalculation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import ezrlc.util.Complex;
 
@@ -13,12 +17,141 @@ import ezrlc.util.Complex;
  */
 public class MCRank {
 
+	// ================================================================================
+	// Public Data
+	// ================================================================================
+	/**
+	 * Result of a ranking, the circuits and their errors, best first
+	 */
+	public static class Ranking {
+		private ArrayList<MCEqCircuit> circuits;
+		private double[] errors;
+
+		private Ranking(ArrayList<MCEqCircuit> circuits, double[] errors) {
+			this.circuits = circuits;
+			this.errors = errors;
+		}
+
+		public ArrayList<MCEqCircuit> getCircuits() {
+			return circuits;
+		}
+
+		public MCEqCircuit get(int i) {
+			return circuits.get(i);
+		}
+
+		public double getError(int i) {
+			return errors[i];
+		}
+
+		public int size() {
+			return circuits.size();
+		}
+	}
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	/**
+	 * Lists of at least this size are evaluated in parallel
+	 */
+	private static final int parallelThreshold = 4;
+
 	// ================================================================================
 	// Constructor
 	// ================================================================================
 	public MCRank() {
 	}
 
+	// ================================================================================
+	// Private static methods
+	// ================================================================================
+	/**
+	 * Compares two circuits of a list by their error, then by the circuit
+	 * type, so the rank does not depend on the order the circuits were fitted
+	 * in
+	 * 
+	 * @param in
+	 *            list of circuit models
+	 * @param error
+	 *            error of every circuit
+	 * @param a
+	 *            index of the first circuit
+	 * @param b
+	 *            index of the second circuit
+	 * @return negative if a is better, positive if b is better
+	 */
+	private static int compare(List<MCEqCircuit> in, double[] error, int a, int b) {
+		int res = Double.compare(error[a], error[b]);
+		if (res == 0) {
+			res = Integer.compare(in.get(a).getCircuitType().ordinal(), in.get(b).getCircuitType().ordinal());
+		}
+		return res;
+	}
+
+	/**
+	 * Returns the complex least square error of the impedance of every
+	 * circuit, on the shared fit scheduler if the list is long enough
+	 * 
+	 * @param yz
+	 *            measured Z data
+	 * @param in
+	 *            list of circuit models
+	 * @return error of every circuit
+	 */
+	private static double[] errors(Complex[] yz, final List<MCEqCircuit> in) {
+		final double[] re = new double[yz.length];
+		final double[] im = new double[yz.length];
+		for (int i = 0; i < yz.length; i++) {
+			re[i] = yz[i].re();
+			im[i] = yz[i].im();
+		}
+		final double[] res = new double[in.size()];
+		if (in.size() < parallelThreshold) {
+			for (int j = 0; j < in.size(); j++) {
+				res[j] = error(re, im, in.get(j));
+			}
+			return res;
+		}
+		MCFitScheduler.getPool().invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(in.size());
+				for (int j = 0; j < in.size(); j++) {
+					final int idx = j;
+					tasks.add(ForkJoinTask.adapt(() -> {
+						res[idx] = error(re, im, in.get(idx));
+					}));
+				}
+				invokeAll(tasks);
+			}
+		});
+		return res;
+	}
+
+	/**
+	 * Returns the complex least square error of the impedance of a circuit
+	 * 
+	 * @param re
+	 *            real part of the measured Z data
+	 * @param im
+	 *            imaginary part of the measured Z data
+	 * @param circuit
+	 *            circuit model
+	 * @return error
+	 */
+	private static double error(double[] re, double[] im, MCEqCircuit circuit) {
+		Complex[] z = circuit.getZ();
+		double error = 0;
+		for (int i = 0; i < re.length; i++) {
+			double delta = Math.hypot(z[i].re() - re[i], z[i].im() - im[i]);
+			error = error + delta * delta;
+		}
+		return error;
+	}
+
 	// ================================================================================
 	// Public static methods
 	// ================================================================================
@@ -32,16 +165,22 @@ public class MCRank {
 	 *            list of circuit models
 	 * @return sorted models, best first
 	 */
-	public static final ArrayList<MCEqCircuit> sortByErrorYAbs(Complex[] ys, List<MCEqCircuit> in) {
+	public static final ArrayList<MCEqCircuit> sortByErrorYAbs(Complex[] ys, final List<MCEqCircuit> in) {
 		ArrayList<MCEqCircuit> res = new ArrayList<MCEqCircuit>(in.size());
 		Complex[] data;
 		double[] magmod = new double[in.get(0).getWSize()];
 		double[] magmeas = new double[in.get(0).getWSize()];
-		double[][] error = new double[in.size()][2];
+		final double[] error = new double[in.size()];
+		Integer[] idx = new Integer[in.size()];
 
-		// Fill error with indexes
+		// Fill with indexes
 		for (int i = 0; i < in.size(); i++) {
-			error[i][1] = i;
+			idx[i] = i;
+		}
+
+		// magnitude of the measurement, the same for all models
+		for (int i = 0; i < magmeas.length; i++) {
+			magmeas[i] = ys[i].abs();
 		}
 
 		// Get error of all incomming modles
@@ -50,22 +189,22 @@ public class MCRank {
 			// get magnitude of S
 			for (int i = 0; i < data.length; i++) {
 				magmod[i] = data[i].abs();
-				magmeas[i] = ys[i].abs();
 			}
 			// calculate error
-			error[j][0] = MCErrorSum.getError(magmeas, magmod);
+			error[j] = MCErrorSum.getError(magmeas, magmod);
 		}
 
-		// Sort error array by first col[0], so second col is listed indexes
-		java.util.Arrays.sort(error, new java.util.Comparator<double[]>() {
-			public int compare(double[] a, double[] b) {
-				return Double.compare(a[0], b[0]);
+		// Sort indexes by the error of their circuit
+		Arrays.sort(idx, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return MCRank.compare(in, error, a, b);
 			}
 		});
 
-		// Sort input list by error array
+		// Sort input list by the indexes
 		for (int i = 0; i < in.size(); i++) {
-			res.add(in.get((int) error[i][1]));
+			res.add(in.get(idx[i]));
 		}
 
 		return res;
@@ -82,42 +221,7 @@ public class MCRank {
 	 * @return sorted models, best first
 	 */
 	public static final ArrayList<MCEqCircuit> sortByErrorZAbs(Complex[] yz, List<MCEqCircuit> in) {
-		ArrayList<MCEqCircuit> res = new ArrayList<MCEqCircuit>(in.size());
-		Complex[] data;
-		double[] magmod = new double[in.get(0).getWSize()];
-		double[] magmeas = new double[in.get(0).getWSize()];
-		double[][] error = new double[in.size()][2];
-
-		// Fill error with indexes
-		for (int i = 0; i < in.size(); i++) {
-			error[i][1] = i;
-		}
-
-		// Get error of all incomming modles
-		for (int j = 0; j < in.size(); j++) {
-			data = in.get(j).getZ();
-			// get magnitude of Z
-			for (int i = 0; i < data.length; i++) {
-				magmod[i] = data[i].abs();
-				magmeas[i] = yz[i].abs();
-			}
-			// calculate error
-			error[j][0] = MCErrorSum.getError(yz, data);
-		}
-
-		// Sort error array by first col[0], so second col is listed indexes
-		java.util.Arrays.sort(error, new java.util.Comparator<double[]>() {
-			public int compare(double[] a, double[] b) {
-				return Double.compare(a[0], b[0]);
-			}
-		});
-
-		// Sort input list by error array
-		for (int i = 0; i < in.size(); i++) {
-			res.add(in.get((int) error[i][1]));
-		}
-
-		return res;
+		return rank(yz, in, in.size()).getCircuits();
 	}
 
 	/**
@@ -133,12 +237,45 @@ public class MCRank {
 	 * @return sorted models, best first
 	 */
 	public static final ArrayList<MCEqCircuit> sortByErrorZAbs(Complex[] yz, List<MCEqCircuit> in, int n) {
-		ArrayList<MCEqCircuit> sort = sortByErrorZAbs(yz, in);
-		ArrayList<MCEqCircuit> res = new ArrayList<MCEqCircuit>(n);
-		for (int i = 0; i < n; i++) {
-			res.add(sort.get(i));
+		return rank(yz, in, n).getCircuits();
+	}
+
+	/**
+	 * Evaluates all circuits against the measured data in parallel and selects
+	 * the k best. Equal errors are ordered by the circuit type.
+	 * 
+	 * @param yz
+	 *            measured Z data
+	 * @param in
+	 *            list of circuit models
+	 * @param k
+	 *            number of best circuits to return
+	 * @return ranking of the k best circuits with their errors, best first
+	 */
+	public static final Ranking rank(Complex[] yz, List<MCEqCircuit> in, int k) {
+		double[] error = errors(yz, in);
+		k = Math.min(k, in.size());
+
+		// partial insertion sort, keeps the k best
+		int[] idx = new int[k];
+		double[] err = new double[k];
+		int n = 0;
+		for (int i = 0; i < in.size(); i++) {
+			if (n == k && compare(in, error, i, idx[k - 1]) >= 0)
+				continue;
+			int j = (n < k) ? n++ : k - 1;
+			while (j > 0 && compare(in, error, i, idx[j - 1]) < 0) {
+				idx[j] = idx[j - 1];
+				j--;
+			}
+			idx[j] = i;
 		}
-		return res;
+		ArrayList<MCEqCircuit> circuits = new ArrayList<MCEqCircuit>(k);
+		for (int i = 0; i < k; i++) {
+			circuits.add(in.get(idx[i]));
+			err[i] = error[idx[i]];
+		}
+		return new Ranking(circuits, err);
 	}
 
 }
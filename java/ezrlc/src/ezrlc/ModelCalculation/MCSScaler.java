@@ -2,7 +2,7 @@ package ezrlc.ModelCalculation;
 
 import ezrlc.RFData.RFData;
 import ezrlc.util.Complex;
-import ezrlc.util.MathUtil;
+import ezrlc.util.ComplexArrayView;
 
 /**
  * Calculates the bes reference resistance for scattering parameters
@@ -15,6 +15,21 @@ public class MCSScaler {
 	// ================================================================================
 	// Private variables
 	// ================================================================================
+	/**
+	 * Spread max|S| - min|S| the reference resistance is scaled to
+	 */
+	private static final double targetSpread = 0.6;
+
+	/**
+	 * Search range of the reference resistance
+	 */
+	private static final double r0Min = 0.00001;
+	private static final double r0Max = 10000;
+
+	/**
+	 * Grid step of the reference resistance used by scale(ys)
+	 */
+	private static final double defaultTolerance = 1.0;
 
 	// ================================================================================
 	// Constructors
@@ -23,6 +38,48 @@ public class MCSScaler {
 
 	}
 
+	// ================================================================================
+	// Private functions
+	// ================================================================================
+	/**
+	 * Returns the spread max|S| - min|S| of the impedance data at the given
+	 * reference resistance, in one pass without converting the data
+	 * 
+	 * @param yz
+	 *            impedance data
+	 * @param r0
+	 *            reference resistance
+	 * @return spread
+	 */
+	private static double spread(ComplexArrayView yz, double r0) {
+		double min = Double.POSITIVE_INFINITY;
+		double max = 0;
+		for (int i = 0; i < yz.length(); i++) {
+			double re = yz.get(i).re();
+			double im2 = yz.get(i).im() * yz.get(i).im();
+			// |S|^2 = |z - r0|^2 / |z + r0|^2
+			double s = Math.sqrt(((re - r0) * (re - r0) + im2) / ((re + r0) * (re + r0) + im2));
+			if (s < min)
+				min = s;
+			if (s > max)
+				max = s;
+		}
+		return max - min;
+	}
+
+	/**
+	 * Returns the reference resistance of a grid point
+	 * 
+	 * @param k
+	 *            index of the grid point
+	 * @param tolerance
+	 *            relative step of the grid
+	 * @return r0Min * (1 + tolerance)^k
+	 */
+	private static double grid(int k, double tolerance) {
+		return r0Min * Math.pow(1 + tolerance, k);
+	}
+
 	// ================================================================================
 	// Public functions
 	// ================================================================================
@@ -34,21 +91,69 @@ public class MCSScaler {
 	 * @return optimal reference resistance for optimizing and solving
 	 */
 	public static double scale(Complex[] ys) {
-		Complex[] yz = new Complex[ys.length];
-		double r0 = 0.00001; // start value
-		yz = RFData.s2z(50, ys);
-		ys = RFData.z2s(r0, yz);
-
-		double[] ysabs = new double[ys.length];
-		ysabs = MathUtil.abs(ys);
-
-		while ((Math.abs(Math.abs(MathUtil.getMax(ysabs)) - Math.abs(MathUtil.getMin(ysabs))) < 0.6) & (r0 < 10000)) {
-			yz = RFData.s2z(r0, ys);
-			r0 *= 2;
-			ys = RFData.z2s(r0, yz);
-			ysabs = MathUtil.abs(ys);
+		return scaleImpedance(new ComplexArrayView(RFData.s2z(50, ys)), defaultTolerance);
+	}
+
+	/**
+	 * Finds the smallest reference resistance on the grid r0Min * (1 +
+	 * tolerance)^k, at which the magnitudes of the scattering parameters
+	 * spread over 0.6. The resistances of the smallest and biggest |Z| and
+	 * their geometric mean are tried first, the crossing below the first one
+	 * reaching the spread is bisected on the grid. Every step is one pass over
+	 * the data, a tolerance of 1 gives the former doubling search.
+	 * 
+	 * @param yz
+	 *            impedance data
+	 * @param tolerance
+	 *            relative step of the reference resistance grid
+	 * @return optimal reference resistance for optimizing and solving, the
+	 *         first grid point above the search range if the spread is never
+	 *         reached
+	 */
+	public static double scaleImpedance(ComplexArrayView yz, double tolerance) {
+		double step = Math.log1p(tolerance);
+		int kMax = (int) Math.ceil(Math.log(r0Max / r0Min) / step);
+		if (yz.length() == 0 || spread(yz, r0Min) >= targetSpread) {
+			return r0Min;
+		}
+
+		// candidates from the extrema of |Z|
+		double zMin = Double.POSITIVE_INFINITY;
+		double zMax = 0;
+		for (int i = 0; i < yz.length(); i++) {
+			double abs = yz.get(i).abs();
+			if (abs < zMin)
+				zMin = abs;
+			if (abs > zMax)
+				zMax = abs;
+		}
+		double[] candidates = { zMin, Math.sqrt(zMin * zMax), zMax };
+		int lo = 0;
+		int hi = kMax;
+		for (double c : candidates) {
+			int k = (c > r0Min) ? (int) Math.min(Math.ceil(Math.log(c / r0Min) / step), kMax) : 0;
+			if (k <= lo || k >= hi)
+				continue;
+			if (spread(yz, grid(k, tolerance)) >= targetSpread) {
+				hi = k;
+				break;
+			}
+			lo = k;
+		}
+		if (hi == kMax && spread(yz, grid(kMax, tolerance)) < targetSpread) {
+			return grid(kMax, tolerance);
+		}
+
+		// bisection, the spread is reached at hi but not at lo
+		while (hi - lo > 1) {
+			int mid = (lo + hi) >>> 1;
+			if (spread(yz, grid(mid, tolerance)) >= targetSpread) {
+				hi = mid;
+			} else {
+				lo = mid;
+			}
 		}
-		return r0;
+		return grid(hi, tolerance);
 	}
 
 }
@@ -0,0 +1,336 @@
+package ezrlc.ModelCalculation;
+
+import ezrlc.ModelCalculation.MCEqCircuit.CircuitType;
+
+/**
+ * Maps the parameters of an equivalent circuit to the search vector seen by
+ * the optimizer and back. The parameters span many decades (fF to MOhm), the
+ * search vector can be taken in log space or scaled by the initial guess to
+ * give every dimension a comparable step size. Fixed parameters are not part
+ * of the search vector, bounds are applied in physical units.
+ * 
+ * @author noah
+ *
+ */
+public class MCSearchSpace {
+
+	// ================================================================================
+	// Public Data
+	// ================================================================================
+	public enum ParameterSpace {
+		LINEAR, SCALED, LOG
+	};
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private CircuitType circuitType;
+	private ParameterSpace space;
+
+	// constructor arguments, used to restart at other parameters
+	private boolean[] fixed;
+	private double[] min;
+	private double[] max;
+
+	// short parameter list of the initial guess, holds the fixed values
+	private double[] base;
+	// short parameter index of every search dimension
+	private int[] index;
+
+	// space of every search dimension, LOG falls back to SCALED for
+	// parameters that are not positive
+	private ParameterSpace[] spaces;
+	private double[] start;
+	private double[] scale;
+	private double[] lower;
+	private double[] upper;
+
+	private double linearStep = 0.001;
+	private double relativeStep = 0.05;
+
+	/**
+	 * Smallest lower bound, keeps the logarithm of a bounded parameter finite
+	 */
+	private double tiny = 1e-30;
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	/**
+	 * Creates a new unbounded search space for the given circuit and initial
+	 * guess
+	 * 
+	 * @param circuitType
+	 *            circuit type
+	 * @param params
+	 *            full parameter array [7] used as initial guess
+	 * @param space
+	 *            parameter space the optimizer is working in
+	 */
+	public MCSearchSpace(CircuitType circuitType, double[] params, ParameterSpace space) {
+		this(circuitType, params, space, null, null, null);
+	}
+
+	/**
+	 * Creates a new search space for the given circuit and initial guess
+	 * 
+	 * @param circuitType
+	 *            circuit type
+	 * @param params
+	 *            full parameter array [7] used as initial guess
+	 * @param space
+	 *            parameter space the optimizer is working in
+	 * @param fixed
+	 *            full array [7], true if the parameter is held fixed, may be
+	 *            null
+	 * @param min
+	 *            full array [7] of lower bounds in physical units, may be null
+	 * @param max
+	 *            full array [7] of upper bounds in physical units, may be null
+	 */
+	public MCSearchSpace(CircuitType circuitType, double[] params, ParameterSpace space, boolean[] fixed,
+			double[] min, double[] max) {
+		this.circuitType = circuitType;
+		this.space = space;
+		this.fixed = fixed;
+		this.min = min;
+		this.max = max;
+
+		base = MCUtil.shortenParam(circuitType, params);
+
+		// collect the free parameters
+		int[] tmp = new int[base.length];
+		int n = 0;
+		for (int i = 0; i < 7; i++) {
+			int idx = MCUtil.parameter2TopoIdx[circuitType.ordinal()][i];
+			if (idx < base.length && (fixed == null || fixed[i] == false)) {
+				tmp[n++] = idx;
+			}
+		}
+		index = new int[n];
+		System.arraycopy(tmp, 0, index, 0, n);
+
+		// bounds in physical units
+		double[] lo = new double[base.length];
+		double[] hi = new double[base.length];
+		for (int i = 0; i < base.length; i++) {
+			lo[i] = Double.NEGATIVE_INFINITY;
+			hi[i] = Double.POSITIVE_INFINITY;
+		}
+		if (min != null) {
+			double[] m = MCUtil.shortenParam(circuitType, min);
+			for (int i = 0; i < base.length; i++) {
+				lo[i] = Math.max(m[i], tiny);
+			}
+		}
+		if (max != null) {
+			double[] m = MCUtil.shortenParam(circuitType, max);
+			for (int i = 0; i < base.length; i++) {
+				hi[i] = Math.max(m[i], lo[i]);
+			}
+		}
+
+		spaces = new ParameterSpace[n];
+		start = new double[n];
+		scale = new double[n];
+		lower = new double[n];
+		upper = new double[n];
+		for (int k = 0; k < n; k++) {
+			int i = index[k];
+			double p = clamp(base[i], lo[i], hi[i]);
+			spaces[k] = (space == ParameterSpace.LOG && (p > 0) == false) ? ParameterSpace.SCALED : space;
+			switch (spaces[k]) {
+			case SCALED:
+				scale[k] = (p != 0.0) ? Math.abs(p) : 1.0;
+				start[k] = p / scale[k];
+				lower[k] = lo[i] / scale[k];
+				upper[k] = hi[i] / scale[k];
+				break;
+			case LOG:
+				scale[k] = 1.0;
+				start[k] = Math.log(p);
+				lower[k] = (lo[i] > 0) ? Math.log(lo[i]) : Double.NEGATIVE_INFINITY;
+				upper[k] = Math.log(hi[i]);
+				break;
+			case LINEAR:
+			default:
+				scale[k] = 1.0;
+				start[k] = p;
+				lower[k] = lo[i];
+				upper[k] = hi[i];
+				break;
+			}
+		}
+	}
+
+	// ================================================================================
+	// Getter and Setter Functions
+	// ================================================================================
+	/**
+	 * Sets the initial simplex step of the scaled and log space
+	 * 
+	 * @param step
+	 *            relative step
+	 */
+	public void setRelativeStep(double step) {
+		this.relativeStep = step;
+	}
+
+	// ================================================================================
+	// Private Functions
+	// ================================================================================
+	/**
+	 * Limits a value to the given range
+	 * 
+	 * @param d
+	 *            value
+	 * @param min
+	 *            lower limit
+	 * @param max
+	 *            upper limit
+	 * @return limited value
+	 */
+	private static double clamp(double d, double min, double max) {
+		return Math.min(Math.max(d, min), max);
+	}
+
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Returns the number of optimized dimensions
+	 * 
+	 * @return dimension of the search vector
+	 */
+	public int getDimension() {
+		return start.length;
+	}
+
+	/**
+	 * Returns the initial guess as search vector
+	 * 
+	 * @return copy of the initial search vector
+	 */
+	public double[] getStart() {
+		double[] res = new double[start.length];
+		System.arraycopy(start, 0, res, 0, start.length);
+		return res;
+	}
+
+	/**
+	 * Returns the initial simplex step of every dimension
+	 * 
+	 * @return step array
+	 */
+	public double[] getStep() {
+		double[] res = new double[start.length];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = (space == ParameterSpace.LINEAR) ? linearStep : relativeStep;
+		}
+		return res;
+	}
+
+	/**
+	 * Returns the lower bounds of the search vector
+	 * 
+	 * @return copy of the lower bounds, -infinity if unbounded
+	 */
+	public double[] getLowerBound() {
+		double[] res = new double[lower.length];
+		System.arraycopy(lower, 0, res, 0, lower.length);
+		return res;
+	}
+
+	/**
+	 * Returns the upper bounds of the search vector
+	 * 
+	 * @return copy of the upper bounds, infinity if unbounded
+	 */
+	public double[] getUpperBound() {
+		double[] res = new double[upper.length];
+		System.arraycopy(upper, 0, res, 0, upper.length);
+		return res;
+	}
+
+	/**
+	 * Returns the parameter space
+	 * 
+	 * @return parameter space
+	 */
+	public ParameterSpace getParameterSpace() {
+		return space;
+	}
+
+	/**
+	 * Creates a search space with the same parameter space, fixed parameters,
+	 * bounds and steps, starting at the given parameters
+	 * 
+	 * @param params
+	 *            full parameter array [7] used as initial guess
+	 * @return new search space
+	 */
+	public MCSearchSpace restartAt(double[] params) {
+		MCSearchSpace res = new MCSearchSpace(circuitType, params, space, fixed, min, max);
+		res.linearStep = linearStep;
+		res.relativeStep = relativeStep;
+		return res;
+	}
+
+	/**
+	 * Multiplies every parameter of a search vector by a power of ten. The
+	 * result is projected onto the bounds.
+	 * 
+	 * @param x
+	 *            search vector
+	 * @param decades
+	 *            exponent of the factor for every dimension
+	 * @return new search vector
+	 */
+	public double[] scaleBy(double[] x, double[] decades) {
+		double[] res = new double[x.length];
+		for (int k = 0; k < x.length; k++) {
+			switch (spaces[k]) {
+			case LOG:
+				res[k] = x[k] + decades[k] * Math.log(10.0);
+				break;
+			case SCALED:
+			case LINEAR:
+			default:
+				res[k] = x[k] * Math.pow(10.0, decades[k]);
+				break;
+			}
+			res[k] = clamp(res[k], lower[k], upper[k]);
+		}
+		return res;
+	}
+
+	/**
+	 * Converts a search vector to the full parameter array in physical units.
+	 * Values outside the bounds are projected onto the bounds.
+	 * 
+	 * @param x
+	 *            search vector
+	 * @return parameter array [7]
+	 */
+	public double[] toParameters(double[] x) {
+		double[] p = new double[base.length];
+		System.arraycopy(base, 0, p, 0, base.length);
+		for (int k = 0; k < x.length; k++) {
+			double v = clamp(x[k], lower[k], upper[k]);
+			switch (spaces[k]) {
+			case SCALED:
+				v = v * scale[k];
+				break;
+			case LOG:
+				v = Math.exp(v);
+				break;
+			case LINEAR:
+			default:
+				break;
+			}
+			p[index[k]] = v;
+		}
+		return MCUtil.topo2Param(circuitType, p);
+	}
+
+}
@@ -0,0 +1,86 @@
+package ezrlc.ModelCalculation;
+
+import org.apache.commons.math3.exception.TooManyEvaluationsException;
+import org.apache.commons.math3.optim.InitialGuess;
+import org.apache.commons.math3.optim.MaxEval;
+import org.apache.commons.math3.optim.PointValuePair;
+import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
+import org.apache.commons.math3.optim.nonlinear.scalar.ObjectiveFunction;
+import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.NelderMeadSimplex;
+import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.SimplexOptimizer;
+
+import ezrlc.ModelCalculation.MCFitResult.StopReason;
+import ezrlc.util.Complex;
+
+/**
+ * Nelder-Mead simplex fitting engine, minimizes the error metric of the
+ * circuit options
+ * 
+ * @author noah
+ *
+ */
+public class MCSimplexEngine implements MCFitEngine {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	// private double optRelThDefault = 1e-11;
+	// private double optAbsThDefault = 1e-14;
+	private double optRelThDefault = 1e-12;
+	private double optAbsThDefault = 1e-15;
+
+	private int maxEval = 10000;
+
+	private int window = 0;
+	private double tolerance = 0.0;
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	/**
+	 * Creates a new simplex engine with the default thresholds
+	 */
+	public MCSimplexEngine() {
+	}
+
+	/**
+	 * Creates a new simplex engine, stopping early if the error stalls
+	 * 
+	 * @param window
+	 *            number of iterations the improvement is measured over, 0
+	 *            disables early stopping
+	 * @param tolerance
+	 *            minimal relative improvement over the window
+	 */
+	public MCSimplexEngine(int window, double tolerance) {
+		this.window = window;
+		this.tolerance = tolerance;
+	}
+
+	// ================================================================================
+	// Interface methods
+	// ================================================================================
+	@Override
+	public MCFitResult fit(MCEqCircuit circuit, Complex[] ys, MCSearchSpace space) {
+		MCErrorSum errorFunction = new MCErrorSum(ys, circuit, space);
+		MCConvergenceMonitor monitor = new MCConvergenceMonitor(optRelThDefault, optAbsThDefault, window, tolerance);
+		SimplexOptimizer optimizer = new SimplexOptimizer(monitor);
+		monitor.setOptimizer(optimizer);
+		double[] start = space.getStart();
+		try {
+			PointValuePair optimum = optimizer.optimize(new MaxEval(maxEval), new ObjectiveFunction(errorFunction),
+					GoalType.MINIMIZE, new InitialGuess(start), new NelderMeadSimplex(space.getStep()));
+			return new MCFitResult(space.toParameters(optimum.getPoint()), monitor.getStopReason(),
+					errorFunction.getEvaluations(), monitor.getIterations(), optimum.getValue());
+		} catch (TooManyEvaluationsException ex) {
+			// If max eval is reached, continue with the best point the
+			// optimizer has seen so far
+			return new MCFitResult(space.toParameters(errorFunction.getBestPoint(start)), StopReason.MAX_EVAL,
+					errorFunction.getEvaluations(), monitor.getIterations(), errorFunction.getBestValue());
+		} catch (MCCancelledException ex) {
+			return new MCFitResult(space.toParameters(errorFunction.getBestPoint(start)), StopReason.CANCELLED,
+					errorFunction.getEvaluations(), monitor.getIterations(), errorFunction.getBestValue());
+		}
+	}
+
+}
@@ -2,6 +2,7 @@ package ezrlc.ModelCalculation;
 
 import ezrlc.ModelCalculation.MCEqCircuit.CircuitType;
 import ezrlc.util.Complex;
+import ezrlc.util.DoubleArrayView;
 
 /**
  * Helper Functions and definitions for Model calculation
@@ -29,6 +30,12 @@ public class MCUtil {
 	 */
 	public final static int[] modelNParameters = { 2, 2, 2, 2, 3, 3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 6, 6, 6, 6 };
 
+	/**
+	 * holds the model without skin effect every skin effect model is derived
+	 * from, starting at nModelSkinStart
+	 */
+	public final static int[] skinModelBase = { 4, 6, 7, 8, 9, 10, 11, 12 };
+
 	public static enum DATA_FORMAT {
 		HZ, OMEGA
 	}
@@ -67,57 +74,12 @@ public class MCUtil {
 	 * @return w data
 	 */
 	public static final double[] applyMCOpsToF(MCOptions ops, double[] f, DATA_FORMAT format) {
-		// conver f to w
-		double mul = 1;
-		if (format == DATA_FORMAT.OMEGA)
-			mul = 2.0 * Math.PI;
-
-		double wMin = (2.0 * Math.PI * ops.fMin) + Double.MIN_VALUE;
-		double wMax = 2.0 * Math.PI * ops.fMax;
-		if (ops.fMaxAuto)
-			wMax = Double.MAX_VALUE;
-		if (ops.fMinAuto)
-			wMin = Double.MIN_VALUE;
-
-		double[] w = new double[f.length];
-		for (int ctr = 0; ctr < w.length; ctr++) {
-			w[ctr] = mul * f[ctr];
-		}
-
-		// Limit f-range
-		if (ops.fMax < ops.fMin) {
+		MCFrequencyWindow window = new MCFrequencyWindow(ops, f);
+		if (window.isValid() == false) {
 			System.err.println("Max smaller min");
 			return null;
 		}
-		int idxLow = 0;
-		int idxHigh = w.length;
-		// search low limit
-		for (int ctr = 0; ctr < w.length; ctr++) {
-			if (w[ctr] >= wMin) {
-				idxLow = ctr;
-				break;
-			}
-		}
-		// search high limit
-		for (int ctr = w.length - 1; ctr > -1; ctr--) {
-			if (w[ctr] <= wMax) {
-				idxHigh = ctr;
-				break;
-			}
-		}
-		// // copy to new array
-		double[] w_out = new double[idxHigh - idxLow + 1];
-		if (format == DATA_FORMAT.OMEGA) {
-			System.arraycopy(w, idxLow, w_out, 0, idxHigh - idxLow + 1);
-		}
-		// convert back to HZ
-		int idx_ctr = 0;
-		if (format == DATA_FORMAT.HZ) {
-			for (int ctr = idxLow; ctr < idxHigh + 1; ctr++) {
-				w_out[idx_ctr++] = w[ctr] / (mul);
-			}
-		}
-		return w_out;
+		return window.getF(format);
 	}
 
 	/**
@@ -131,21 +93,21 @@ public class MCUtil {
 	 * @return first index of the f array that is in the allowed range
 	 */
 	public static int getFirstFIndex(MCOptions ops, double[] f) {
-		int idx = 0;
-
-		double fMin = (ops.fMin) + Double.MIN_VALUE;
-		if (ops.fMinAuto)
-			fMin = Double.MIN_VALUE;
-
-		// search low limit
-		for (int ctr = 0; ctr < f.length; ctr++) {
-			if (f[ctr] >= fMin) {
-				idx = ctr;
-				break;
-			}
-		}
+		return new MCFrequencyWindow(ops, f).getOffset();
+	}
 
-		return idx;
+	/**
+	 * Returns the first index of the given f-vector that is affected by the
+	 * MCOptions, including cutting all 0-frequency points
+	 * 
+	 * @param ops
+	 *            MCOptions
+	 * @param f
+	 *            frequency vector being processed in Hertz
+	 * @return first index of the f array that is in the allowed range
+	 */
+	public static int getFirstFIndex(MCOptions ops, DoubleArrayView f) {
+		return new MCFrequencyWindow(ops, f).getOffset();
 	}
 
 	/**
@@ -160,44 +122,12 @@ public class MCUtil {
 	 * @return data array out, cut to the f-range
 	 */
 	public static final double[] applyMCOpsToData(MCOptions ops, double[] f, double[] data) {
-		// conver f to w
-		double wMin = 2.0 * Math.PI * ops.fMin + Double.MIN_VALUE;
-		double wMax = 2.0 * Math.PI * ops.fMax;
-		if (ops.fMaxAuto)
-			wMax = Double.MAX_VALUE;
-		if (ops.fMinAuto)
-			wMin = Double.MIN_VALUE;
-		double[] w = new double[f.length];
-		for (int ctr = 0; ctr < w.length; ctr++) {
-			w[ctr] = 2.0 * Math.PI * f[ctr];
-		}
-
-		// Limit f-range
-		if (ops.fMax < ops.fMin) {
+		MCFrequencyWindow window = new MCFrequencyWindow(ops, f);
+		if (window.isValid() == false) {
 			System.err.println("Max smaller min");
 			return null;
 		}
-		int idxLow = 0;
-		int idxHigh = w.length;
-		// search low limit
-		for (int ctr = 0; ctr < w.length; ctr++) {
-			if (w[ctr] >= wMin) {
-				idxLow = ctr;
-				break;
-			}
-		}
-		// search high limit
-		for (int ctr = w.length - 1; ctr > -1; ctr--) {
-			if (w[ctr] <= wMax) {
-				idxHigh = ctr;
-				break;
-			}
-		}
-
-		// copy to new array
-		double[] data_out = new double[idxHigh - idxLow + 1];
-		System.arraycopy(data, idxLow, data_out, 0, idxHigh - idxLow + 1);
-		return data_out;
+		return window.slice(data);
 	}
 
 	/**
@@ -212,25 +142,12 @@ public class MCUtil {
 	 * @return data array out, cut to the f-range
 	 */
 	public static final Complex[] applyMCOpsToData(MCOptions opt, double[] f, Complex[] data) {
-		// extract real and imag data
-		double[] real = new double[data.length];
-		double[] imag = new double[data.length];
-		for (int i = 0; i < data.length; i++) {
-			real[i] = data[i].re();
-			imag[i] = data[i].im();
-		}
-
-		// apply ops
-		real = applyMCOpsToData(opt, f, real);
-		imag = applyMCOpsToData(opt, f, imag);
-
-		// rebuild array
-		Complex[] res = new Complex[real.length];
-		for (int i = 0; i < real.length; i++) {
-			res[i] = (new Complex(real[i], imag[i]));
+		MCFrequencyWindow window = new MCFrequencyWindow(opt, f);
+		if (window.isValid() == false) {
+			System.err.println("Max smaller min");
+			return null;
 		}
-
-		return res;
+		return window.slice(data);
 	}
 
 	/**
@@ -263,8 +180,14 @@ public class MCUtil {
 			if (modelNParameters[ctr] >= ops.nElementsMin && modelNParameters[ctr] <= ops.nElementsMax)
 				num_models++;
 		}
-		// count how many there are without skin effect
+		// count how many there are with skin effect
 		int num_models_skin = 0;
+		if (ops.skinAutoSelect) {
+			for (int ctr = MCUtil.nModelSkinStart; ctr < MCUtil.nModels; ctr++) {
+				if (modelNParameters[ctr] >= ops.nElementsMin && modelNParameters[ctr] <= ops.nElementsMax)
+					num_models_skin++;
+			}
+		}
 
 		// save the indexes in a array
 		int[] modelIdx = new int[num_models + num_models_skin];
@@ -273,6 +196,12 @@ public class MCUtil {
 			if (modelNParameters[ctr] >= ops.nElementsMin && modelNParameters[ctr] <= ops.nElementsMax)
 				modelIdx[modelIdxCtr++] = ctr;
 		}
+		if (ops.skinAutoSelect) {
+			for (int ctr = MCUtil.nModelSkinStart; ctr < MCUtil.nModels; ctr++) {
+				if (modelNParameters[ctr] >= ops.nElementsMin && modelNParameters[ctr] <= ops.nElementsMax)
+					modelIdx[modelIdxCtr++] = ctr;
+			}
+		}
 
 		circuitList = new CircuitType[modelIdx.length];
 		for (int i = 0; i < modelIdx.length; i++) {
@@ -281,6 +210,49 @@ public class MCUtil {
 		return circuitList;
 	}
 
+	/**
+	 * Returns the skin effect model derived from the given model
+	 * 
+	 * @param t
+	 *            model without skin effect
+	 * @return skin effect model, null if there is none
+	 */
+	public static final CircuitType baseToSkinModel(CircuitType t) {
+		for (int i = 0; i < skinModelBase.length; i++) {
+			if (skinModelBase[i] == t.ordinal()) {
+				return modelIdxToCircuitType(nModelSkinStart + i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Creates the initial parameters of a skin effect model from the
+	 * parameters of the model it is derived from. The resistance in series to
+	 * the inductor gets the skin effect, starting at the upper end of the
+	 * frequency range.
+	 * 
+	 * @param t
+	 *            model without skin effect
+	 * @param p
+	 *            parameter array [7] of the model without skin effect
+	 * @param fMax
+	 *            highest frequency of the data
+	 * @return parameter array [7] of the skin effect model
+	 */
+	public static final double[] skinSeedParam(CircuitType t, double[] p, double fMax) {
+		double[] res = new double[7];
+		System.arraycopy(p, 0, res, 0, 7);
+		// model 16 takes R1 in series, R0 parallel to C
+		if (t == CircuitType.MODEL8) {
+			res[0] = p[3];
+			res[3] = p[0];
+		}
+		res[1] = fMax;
+		res[2] = 0.5;
+		return res;
+	}
+
 	/**
 	 * Converts an integer index to the coresponding model enumeration entry
 	 * 
@@ -350,7 +322,7 @@ public class MCUtil {
 		case MODEL9:
 			res[0] = p[0];
 			res[3] = p[1];
-			res[5] = p[2];
+			res[4] = p[2];
 			res[5] = p[3];
 			break;
 		case MODEL10:
@@ -0,0 +1,486 @@
+package ezrlc.ModelCalculation;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.EigenDecomposition;
+import org.apache.commons.math3.linear.QRDecomposition;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.commons.math3.linear.SingularMatrixException;
+
+import ezrlc.ModelCalculation.MCEqCircuit.CircuitType;
+import ezrlc.util.Complex;
+
+/**
+ * Vector fitting (Gustavsen-Semlyen) of the measured impedance. Approximates
+ * Z(s) by a rational function with N poles, Z(s) = sum(c_n / (s - a_n)) + d +
+ * s*e, independent of the equivalent circuit topologies. Every iteration
+ * relocates the poles by a linear least square fit of the weighted data and
+ * the zeros of the weighting function. The result can be matched to the
+ * topology that reproduces it best. Usage: new MCVectorFit(w, yz,
+ * 4).fit().match()
+ * 
+ * @author noah
+ *
+ */
+public class MCVectorFit {
+
+	// ================================================================================
+	// Public Data
+	// ================================================================================
+	/**
+	 * Topology matching a rational fit
+	 */
+	public static class Match {
+		private CircuitType circuitType;
+		private double[] parameters;
+		private double error;
+
+		private Match(CircuitType circuitType, double[] parameters, double error) {
+			this.circuitType = circuitType;
+			this.parameters = parameters;
+			this.error = error;
+		}
+
+		public CircuitType getCircuitType() {
+			return circuitType;
+		}
+
+		public double[] getParameters() {
+			return parameters;
+		}
+
+		/**
+		 * Returns the rms error of the topology relative to the rational fit
+		 * 
+		 * @return relative error
+		 */
+		public double getError() {
+			return error;
+		}
+	}
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private double[] w;
+	private Complex[] yz;
+	private int nPoles;
+
+	/**
+	 * Poles, a complex pair is stored as a[i] = re + j im, a[i+1] = re - j im
+	 */
+	private double[] poleRe;
+	private double[] poleIm;
+
+	/**
+	 * Residues in the same layout as the poles, and the constant and
+	 * proportional terms
+	 */
+	private double[] resRe;
+	private double[] resIm;
+	private double d;
+	private double e;
+
+	private int maxIterations = 20;
+
+	/**
+	 * The fit converged if no pole moved more than this fraction
+	 */
+	private double tolerance = 1e-6;
+
+	/**
+	 * A topology matches if its error relative to the rational fit is below
+	 * this value, the one with the fewest elements is taken
+	 */
+	private double matchTolerance = 1e-3;
+
+	// ================================================================================
+	// Constructor
+	// ================================================================================
+	/**
+	 * Creates a new vector fit
+	 * 
+	 * @param w
+	 *            frequency vector in omega
+	 * @param yz
+	 *            measured impedance data
+	 * @param nPoles
+	 *            number of poles
+	 */
+	public MCVectorFit(double[] w, Complex[] yz, int nPoles) {
+		this.w = w;
+		this.yz = yz;
+		this.nPoles = Math.max(nPoles, 1);
+	}
+
+	// ================================================================================
+	// Getter and Setter Functions
+	// ================================================================================
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	public double[] getPoleRe() {
+		return poleRe;
+	}
+
+	public double[] getPoleIm() {
+		return poleIm;
+	}
+
+	public double getD() {
+		return d;
+	}
+
+	public double getE() {
+		return e;
+	}
+
+	// ================================================================================
+	// Private Functions
+	// ================================================================================
+	/**
+	 * Creates the start poles, complex pairs with little damping spread log
+	 * over the frequency range, and a real pole in the middle if N is odd
+	 */
+	private void startPoles() {
+		double wMin = Double.POSITIVE_INFINITY;
+		double wMax = 0;
+		for (double v : w) {
+			if (v > 0) {
+				wMin = Math.min(wMin, v);
+				wMax = Math.max(wMax, v);
+			}
+		}
+		if (wMax == 0) {
+			wMin = 1;
+			wMax = 1;
+		}
+		poleRe = new double[nPoles];
+		poleIm = new double[nPoles];
+		int nPairs = nPoles / 2;
+		for (int k = 0; k < nPairs; k++) {
+			double beta = (nPairs == 1) ? Math.sqrt(wMin * wMax)
+					: wMin * Math.pow(wMax / wMin, (double) k / (nPairs - 1));
+			poleRe[2 * k] = -beta / 100;
+			poleIm[2 * k] = beta;
+			poleRe[2 * k + 1] = -beta / 100;
+			poleIm[2 * k + 1] = -beta;
+		}
+		if (nPoles % 2 == 1) {
+			poleRe[nPoles - 1] = -Math.sqrt(wMin * wMax);
+		}
+	}
+
+	/**
+	 * Fills the real basis functions of the poles at s = jw into row. A real
+	 * pole gives 1/(s-a), a complex pair gives 1/(s-a) + 1/(s-a*) and j/(s-a) -
+	 * j/(s-a*).
+	 * 
+	 * @param wi
+	 *            frequency in omega
+	 * @param re
+	 *            real parts, length N
+	 * @param im
+	 *            imaginary parts, length N
+	 */
+	private void basis(double wi, double[] re, double[] im) {
+		for (int k = 0; k < nPoles; k++) {
+			// 1/(jw - a) = (-ar - j(w - ai)) / (ar^2 + (w - ai)^2)
+			double dr = -poleRe[k];
+			double di = wi - poleIm[k];
+			double den = dr * dr + di * di;
+			double br = dr / den;
+			double bi = -di / den;
+			if (poleIm[k] == 0) {
+				re[k] = br;
+				im[k] = bi;
+			} else {
+				// conjugate pole
+				double cr = dr;
+				double ci = wi + poleIm[k];
+				double cden = cr * cr + ci * ci;
+				double pr = cr / cden;
+				double pi = -ci / cden;
+				re[k] = br + pr;
+				im[k] = bi + pi;
+				re[k + 1] = -(bi - pi);
+				im[k + 1] = br - pr;
+				k++;
+			}
+		}
+	}
+
+	/**
+	 * Solves the weighted least square system with column scaling
+	 * 
+	 * @param a
+	 *            system matrix, modified
+	 * @param b
+	 *            right hand side
+	 * @return solution, null if singular
+	 */
+	private static double[] solve(double[][] a, double[] b) {
+		int rows = a.length;
+		int cols = a[0].length;
+		double[] scale = new double[cols];
+		for (int j = 0; j < cols; j++) {
+			double s = 0;
+			for (int i = 0; i < rows; i++) {
+				s += a[i][j] * a[i][j];
+			}
+			scale[j] = (s > 0) ? Math.sqrt(s) : 1.0;
+			for (int i = 0; i < rows; i++) {
+				a[i][j] /= scale[j];
+			}
+		}
+		RealVector sol;
+		try {
+			sol = new QRDecomposition(new Array2DRowRealMatrix(a, false)).getSolver()
+					.solve(new ArrayRealVector(b, false));
+		} catch (SingularMatrixException ex) {
+			return null;
+		}
+		double[] res = new double[cols];
+		for (int j = 0; j < cols; j++) {
+			res[j] = sol.getEntry(j) / scale[j];
+		}
+		return res;
+	}
+
+	/**
+	 * Returns the weight of a point, the fit is relative to |Z|
+	 * 
+	 * @param i
+	 *            point index
+	 * @return weight, 0 for unusable points
+	 */
+	private double weight(int i) {
+		double abs = yz[i].abs();
+		if (Double.isNaN(abs) || Double.isInfinite(abs))
+			return 0.0;
+		return (abs > 0) ? 1.0 / abs : 1.0;
+	}
+
+	/**
+	 * One pole relocation step
+	 * 
+	 * @return largest relative pole movement, NaN if the system is singular
+	 */
+	private double relocate() {
+		int n = w.length;
+		int cols = 2 * nPoles + 2;
+		double[][] a = new double[2 * n][cols];
+		double[] b = new double[2 * n];
+		double[] re = new double[nPoles];
+		double[] im = new double[nPoles];
+		for (int i = 0; i < n; i++) {
+			double g = weight(i);
+			if (g == 0)
+				continue;
+			basis(w[i], re, im);
+			double zr = yz[i].re();
+			double zi = yz[i].im();
+			double[] rr = a[2 * i];
+			double[] ri = a[2 * i + 1];
+			for (int k = 0; k < nPoles; k++) {
+				// residues of Z
+				rr[k] = g * re[k];
+				ri[k] = g * im[k];
+				// residues of sigma, -Z * phi
+				rr[nPoles + 2 + k] = -g * (zr * re[k] - zi * im[k]);
+				ri[nPoles + 2 + k] = -g * (zr * im[k] + zi * re[k]);
+			}
+			// d and s*e
+			rr[nPoles] = g;
+			ri[nPoles + 1] = g * w[i];
+			b[2 * i] = g * zr;
+			b[2 * i + 1] = g * zi;
+		}
+		double[] x = solve(a, b);
+		if (x == null)
+			return Double.NaN;
+
+		// zeros of sigma: eigenvalues of A - b * c~
+		double[][] h = new double[nPoles][nPoles];
+		for (int k = 0; k < nPoles; k++) {
+			if (poleIm[k] == 0) {
+				h[k][k] = poleRe[k];
+				for (int j = 0; j < nPoles; j++) {
+					h[k][j] -= x[nPoles + 2 + j];
+				}
+			} else {
+				h[k][k] = poleRe[k];
+				h[k][k + 1] = poleIm[k];
+				h[k + 1][k] = -poleIm[k];
+				h[k + 1][k + 1] = poleRe[k];
+				for (int j = 0; j < nPoles; j++) {
+					h[k][j] -= 2 * x[nPoles + 2 + j];
+				}
+				k++;
+			}
+		}
+		EigenDecomposition eig = new EigenDecomposition(new Array2DRowRealMatrix(h, false));
+		double[] er = eig.getRealEigenvalues();
+		double[] ei = eig.getImagEigenvalues();
+
+		// store as real poles and conjugate pairs, flip unstable poles
+		double[] nr = new double[nPoles];
+		double[] ni = new double[nPoles];
+		int m = 0;
+		for (int k = 0; k < nPoles; k++) {
+			if (ei[k] == 0) {
+				nr[m] = -Math.abs(er[k]);
+				ni[m++] = 0;
+			} else if (ei[k] > 0) {
+				nr[m] = -Math.abs(er[k]);
+				ni[m++] = ei[k];
+				nr[m] = -Math.abs(er[k]);
+				ni[m++] = -ei[k];
+			}
+		}
+		if (m != nPoles)
+			return Double.NaN;
+		double move = 0;
+		for (int k = 0; k < nPoles; k++) {
+			double abs = Math.hypot(poleRe[k], poleIm[k]);
+			move = Math.max(move, Math.hypot(nr[k] - poleRe[k], ni[k] - poleIm[k]) / abs);
+		}
+		poleRe = nr;
+		poleIm = ni;
+		return move;
+	}
+
+	/**
+	 * Fits the residues, d and e to the final poles
+	 * 
+	 * @return false if the system is singular
+	 */
+	private boolean fitResidues() {
+		int n = w.length;
+		int cols = nPoles + 2;
+		double[][] a = new double[2 * n][cols];
+		double[] b = new double[2 * n];
+		double[] re = new double[nPoles];
+		double[] im = new double[nPoles];
+		for (int i = 0; i < n; i++) {
+			double g = weight(i);
+			if (g == 0)
+				continue;
+			basis(w[i], re, im);
+			for (int k = 0; k < nPoles; k++) {
+				a[2 * i][k] = g * re[k];
+				a[2 * i + 1][k] = g * im[k];
+			}
+			a[2 * i][nPoles] = g;
+			a[2 * i + 1][nPoles + 1] = g * w[i];
+			b[2 * i] = g * yz[i].re();
+			b[2 * i + 1] = g * yz[i].im();
+		}
+		double[] x = solve(a, b);
+		if (x == null)
+			return false;
+		// back to complex residues, c = c' + j c'' for the pair
+		resRe = new double[nPoles];
+		resIm = new double[nPoles];
+		for (int k = 0; k < nPoles; k++) {
+			if (poleIm[k] == 0) {
+				resRe[k] = x[k];
+			} else {
+				resRe[k] = x[k];
+				resIm[k] = x[k + 1];
+				resRe[k + 1] = x[k];
+				resIm[k + 1] = -x[k + 1];
+				k++;
+			}
+		}
+		d = x[nPoles];
+		e = x[nPoles + 1];
+		return true;
+	}
+
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Runs the fit
+	 * 
+	 * @return this, null if the fit failed
+	 */
+	public MCVectorFit fit() {
+		startPoles();
+		for (int it = 0; it < maxIterations; it++) {
+			double move = relocate();
+			if (Double.isNaN(move))
+				return null;
+			if (move < tolerance)
+				break;
+		}
+		return fitResidues() ? this : null;
+	}
+
+	/**
+	 * Evaluates the rational function
+	 * 
+	 * @param wv
+	 *            frequency vector in omega
+	 * @return impedance
+	 */
+	public Complex[] getZ(double[] wv) {
+		Complex[] res = new Complex[wv.length];
+		for (int i = 0; i < wv.length; i++) {
+			double re = d;
+			double im = wv[i] * e;
+			for (int k = 0; k < nPoles; k++) {
+				// c / (jw - a)
+				double dr = -poleRe[k];
+				double di = wv[i] - poleIm[k];
+				double den = dr * dr + di * di;
+				re += (resRe[k] * dr + resIm[k] * di) / den;
+				im += (resIm[k] * dr - resRe[k] * di) / den;
+			}
+			res[i] = new Complex(re, im);
+		}
+		return res;
+	}
+
+	/**
+	 * Finds the topology without skin effect reproducing the rational fit.
+	 * Every topology gets the least square guess of the fitted data, the one
+	 * with the fewest elements within the match tolerance is taken, else the
+	 * one with the lowest error.
+	 * 
+	 * @return matching topology, null if none could be solved
+	 */
+	public Match match() {
+		Complex[] zFit = getZ(w);
+		Match best = null;
+		Match fewest = null;
+		for (int t = 0; t < MCUtil.nModelSkinStart; t++) {
+			CircuitType type = MCUtil.modelIdxToCircuitType(t);
+			double[] p = MCInitialGuess.guess(type, w, zFit);
+			if (p == null)
+				continue;
+			MCEqCircuit c = new MCEqCircuit(type, p);
+			c.setWVector(w);
+			Complex[] zModel = c.getZ();
+			double sum = 0;
+			for (int i = 0; i < w.length; i++) {
+				double abs = zFit[i].abs();
+				double delta = Complex.sub(zModel[i], zFit[i]).abs() / ((abs > 0) ? abs : 1.0);
+				sum += delta * delta;
+			}
+			double error = Math.sqrt(sum / w.length);
+			if (!(error < Double.POSITIVE_INFINITY))
+				continue;
+			Match m = new Match(type, p, error);
+			if (best == null || error < best.error)
+				best = m;
+			if (error < matchTolerance && (fewest == null
+					|| MCUtil.modelNParameters[t] < MCUtil.modelNParameters[fewest.circuitType.ordinal()]))
+				fewest = m;
+		}
+		return (fewest != null) ? fewest : best;
+	}
+
+}
@@ -1,22 +1,29 @@
 package ezrlc.ModelCalculation;
 
+import java.lang.Thread.State;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.DoubleAccumulator;
 
 import ezrlc.Model.Model;
 import ezrlc.ModelCalculation.MCEqCircuit.CircuitType;
 import ezrlc.RFData.RFData;
+import ezrlc.RFData.RFFeatures;
 import ezrlc.util.Complex;
-import ezrlc.util.MathUtil;
+import ezrlc.util.ComplexArrayView;
 
 /**
  * Worker Class that calculates a new equivalent circuit model Usage: MCWorker
- * worker = new MCWorker("MCWorker-1"); worker.start();
+ * worker = new MCWorker(model, "MCWorker-1"); worker.start(); The fits run
+ * on the shared MCFitScheduler.
  * 
  * @author noah
  *
  */
-public class MCWorker extends Thread {
+public class MCWorker implements Runnable {
 
 	// ================================================================================
 	// Public Data
@@ -29,15 +36,36 @@ public class MCWorker extends Thread {
 	// Private Data
 	// ================================================================================
 	private Model parentModel;
-	private Thread t;
 	private String workerName;
+	private CompletableFuture<MCEqCircuit> future;
 
 	private MCOptions ops;
 	private MCEqCircuit eqCircuit;
 
 	private WorkerMode workerMode;
 
-	private boolean stopWorker = false;
+	// data of the parent model the calculation was started on
+	private RFData fittedData;
+
+	private volatile boolean stopWorker = false;
+	private MCCancelToken cancelToken = new MCCancelToken();
+
+	/**
+	 * A skin effect model is only preferred if its error is below this
+	 * fraction of the error of the best model without skin effect
+	 */
+	private double skinGain = 0.5;
+
+	/**
+	 * Squared scattering error per point at which a fit of the exhaustive
+	 * mode is exact to double precision
+	 */
+	private double exhaustiveErrorFloor = 1e-24;
+
+	/**
+	 * Relative grid step of the reference resistance of the scattering data
+	 */
+	private double scalerTolerance = 1.0;
 
 	// ================================================================================
 	// Constructor
@@ -61,6 +89,17 @@ public class MCWorker extends Thread {
 		workerMode = WorkerMode.NORMAL;
 	}
 
+	/**
+	 * Sets the token used to cancel the fits of this worker, used to cancel
+	 * several workers at once
+	 * 
+	 * @param token
+	 *            cancel token
+	 */
+	public void setCancelToken(MCCancelToken token) {
+		cancelToken = token;
+	}
+
 	/**
 	 * Set the model to be optimized
 	 * 
@@ -77,91 +116,142 @@ public class MCWorker extends Thread {
 	// Start Method
 	// ================================================================================
 	/**
-	 * Starts the thread
+	 * Starts the calculation on the shared fit scheduler, the result is
+	 * reported to the parent model
 	 */
 	public void start() {
-		if (t == null) {
-			t = new Thread(this, workerName);
-			t.start();
+		if (future == null) {
+			future = calculate();
+			future.whenComplete((eqc, ex) -> {
+				if (ex != null) {
+					failed(ex);
+				} else {
+					success(eqc);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns the name of the worker
+	 * 
+	 * @return name
+	 */
+	public String getName() {
+		return workerName;
+	}
+
+	/**
+	 * Returns the state of the calculation
+	 * 
+	 * @return NEW if not started, RUNNABLE while calculating, TERMINATED if
+	 *         done
+	 */
+	public State getState() {
+		if (future == null) {
+			return State.NEW;
 		}
+		return future.isDone() ? State.TERMINATED : State.RUNNABLE;
 	}
 
 	// ================================================================================
 	// Run method
 	// ================================================================================
 	/**
-	 * Is called after the thread is started, thread is stopped after exit of
-	 * this method
+	 * Calculates the equivalent circuit and blocks until it is done
 	 */
 	public void run() {
-		// Data
-		RFData rfData = parentModel.getRFData();
+		try {
+			success(calculate().join());
+		} catch (CompletionException e) {
+			failed(e);
+		}
+	}
+
+	/**
+	 * Calculates the equivalent circuit of the data of the parent model on
+	 * the shared fit scheduler
+	 * 
+	 * @return future of the best equivalent circuit
+	 */
+	public CompletableFuture<MCEqCircuit> calculate() {
+		fittedData = parentModel.getRFData();
+		return calculate(fittedData);
+	}
+
+	/**
+	 * Calculates the equivalent circuit of the given data on the shared fit
+	 * scheduler. Does not need a parent model, nothing is reported.
+	 * 
+	 * @param rfData
+	 *            measurement data
+	 * @return future of the best equivalent circuit
+	 */
+	public CompletableFuture<MCEqCircuit> calculate(final RFData rfData) {
+		return CompletableFuture.completedFuture(this).thenComposeAsync(w -> w.pipeline(rfData),
+				MCFitScheduler.getPool());
+	}
+
+	/**
+	 * Prepares the data, solves analytically and chains the optimizing
+	 * branches
+	 * 
+	 * @param rfData
+	 *            measurement data
+	 * @return future of the best equivalent circuit
+	 */
+	private CompletableFuture<MCEqCircuit> pipeline(RFData rfData) {
 		// Results of analytical solver
 		List<MCEqCircuit> solverCircuits;
 		// Results of the three branches
-		List<MCEqCircuit> branch1, branch2, branch3;
-		// three branches merged and sorted
-		List<MCEqCircuit> rank;
-
-		Thread t1_0 = null;
-		Thread t1_1 = null;
-		Thread t2_0 = null;
-		Thread t2_1 = null;
+		List<MCEqCircuit> branch1, branch2;
+
 		boolean do3ElementOptimize = false;
 		boolean doExpand = true;
 
+		// if mode is optimize only, do it now
+		if (workerMode == WorkerMode.OPT_ONLY) {
+			return optimizeOnly(rfData);
+		}
+
 		// ----------------------------------------
 		// Get Data and scale
 		// ----------------------------------------
 		// get necessary data
-		double[] f = rfData.getfData();
-		Complex[] s;
-		Complex[] z = rfData.getzData();
+		ComplexArrayView z = rfData.getzDataView();
+		RFFeatures features = rfData.getFeatures();
 
 		// S Scaler
-		double rref = MCSScaler.scale(rfData.getSData(50));
-
-		// Get new S Data
-		s = rfData.getSData(rref);
-
-		// if mode is optimize only, do it now
-		if (workerMode == WorkerMode.OPT_ONLY) {
-			Complex[] ys = MCUtil.applyMCOpsToData(eqCircuit.getOps(), f, s);
-			eqCircuit.setZ0(rref);
-			eqCircuit.optimize(ys);
-			absParams(eqCircuit);
-			success(eqCircuit);
-			return;
-		}
+		final double rref = MCSScaler.scaleImpedance(z, scalerTolerance);
 
 		// ----------------------------------------
 		// Apply OPS
 		// ----------------------------------------
-		// apply ops
-		double[] w = MCUtil.applyMCOpsToF(ops, f, MCUtil.DATA_FORMAT.OMEGA);
-		Complex[] ys = MCUtil.applyMCOpsToData(ops, f, s);
-		Complex[] yz = MCUtil.applyMCOpsToData(ops, f, z);
+		// apply ops, the window is searched once for all data
+		MCFrequencyWindow window = new MCFrequencyWindow(ops, rfData.getfDataView());
+		final double[] w = window.getF(MCUtil.DATA_FORMAT.OMEGA);
+		final Complex[] yz = window.view(z).toArray();
+
+		// Get new S Data, only in the window
+		final Complex[] ys = RFData.z2s(rref, yz);
 
 		// Create model index list
-		CircuitType[] circuitIdxes = MCUtil.createModelList(ops);
+		final CircuitType[] circuitIdxes = MCUtil.createModelList(ops);
 
 		// Create equivalent circuit models
 		List<MCEqCircuit> userCircuits = new ArrayList<MCEqCircuit>(circuitIdxes.length);
 		for (CircuitType type : circuitIdxes) {
-			userCircuits.add(new MCEqCircuit(type));
-			userCircuits.get(userCircuits.size() - 1).setWVector(w);
-			userCircuits.get(userCircuits.size() - 1).setZ0(rref);
+			userCircuits.add(prepareCircuit(new MCEqCircuit(type), w, rref));
 		}
 
 		// ----------------------------------------
 		// if manual select, stop here
 		// ----------------------------------------
 		if (ops.modelAutoSelect == false) {
-			MCEqCircuit eqc = createManualCircuit();
+			MCEqCircuit eqc = createManualCircuit(w, yz);
 			eqc.setWVector(w);
 			eqc.setOps(ops);
-			success(eqc);
-			return;
+			return CompletableFuture.completedFuture(eqc);
 		}
 
 		// Create circuit list for analytical solver
@@ -169,15 +259,27 @@ public class MCWorker extends Thread {
 				CircuitType.MODEL3, CircuitType.MODEL4, CircuitType.MODEL5, CircuitType.MODEL6, CircuitType.MODEL7 };
 		solverCircuits = new ArrayList<MCEqCircuit>(8);
 		for (int i = 0; i < 8; i++) {
-			solverCircuits.add(new MCEqCircuit(solverCircuitTypes[i]));
-			solverCircuits.get(solverCircuits.size() - 1).setWVector(w);
-			solverCircuits.get(solverCircuits.size() - 1).setZ0(rref);
+			solverCircuits.add(prepareCircuit(new MCEqCircuit(solverCircuitTypes[i]), w, rref));
 		}
 
 		// Do analytical solving
-		analyticalSolver(w, yz, ys, solverCircuits);
+		analyticalSolver(w, yz, ys, solverCircuits, features);
 		// solverCircuits contains solved circuits 0..8
 
+		// Vector fit, the matched model competes as start point
+		MCVectorFit.Match vfMatch = null;
+		if (ops.vectorFitPoles > 0) {
+			MCVectorFit vf = new MCVectorFit(w, yz, ops.vectorFitPoles).fit();
+			vfMatch = (vf != null) ? vf.match() : null;
+		}
+		if (vfMatch != null) {
+			for (MCEqCircuit c : solverCircuits) {
+				if (c.getCircuitType() == vfMatch.getCircuitType()) {
+					applyGuess(c, vfMatch.getParameters(), ys);
+				}
+			}
+		}
+
 		// Apply solver parameters
 		for (int i = 0; i < solverCircuits.size(); i++) {
 			for (int j = 0; j < userCircuits.size(); j++) {
@@ -193,6 +295,9 @@ public class MCWorker extends Thread {
 				for (MCEqCircuit circuit : userCircuits) {
 					circuit.setParameter(i, ops.params[i]);
 				}
+				for (MCEqCircuit circuit : solverCircuits) {
+					circuit.setParameter(i, ops.params[i]);
+				}
 			}
 		}
 
@@ -207,6 +312,16 @@ public class MCWorker extends Thread {
 		if (max < 3)
 			doExpand = false;
 
+		// The branches below optimize the circuits of the list in place, the
+		// exhaustive stage seeds from a snapshot of the solved parameters
+		List<MCEqCircuit> solvedSnapshot = null;
+		if (ops.exhaustive) {
+			solvedSnapshot = new ArrayList<MCEqCircuit>(sortedList.size());
+			for (MCEqCircuit c : sortedList) {
+				solvedSnapshot.add(c.copy());
+			}
+		}
+
 		// ----------------------------------------
 		// Branch 2
 		// Models with 2 elements optimize
@@ -224,18 +339,18 @@ public class MCWorker extends Thread {
 		// get 2 best
 		branch2 = MCRank.sortByErrorZAbs(yz, branch2, 2);
 		// Optimize them
-		branch2.get(0).optimizeThreaded(ys);
-		t2_0 = new Thread(branch2.get(0), "EQC-Thread-t2_0");
-		t2_0.start();
-		branch2.get(1).optimizeThreaded(ys);
-		t2_1 = new Thread(branch2.get(1), "EQC-Thread-t2_1");
-		t2_1.start();
+		CompletableFuture<List<MCEqCircuit>> future2 = MCFitScheduler.optimizeAll(branch2, ys);
+		if (doExpand) {
+			// Calculate rank
+			future2 = future2.thenApply(b2 -> MCRank.sortByErrorZAbs(yz, b2, 2));
+		}
 
 		// ----------------------------------------
 		// Branch 1
 		// Models with 3 elements optimize
 		// ----------------------------------------
 		branch1 = new ArrayList<MCEqCircuit>(4);
+		CompletableFuture<List<MCEqCircuit>> future1 = CompletableFuture.completedFuture(branch1);
 		if (do3ElementOptimize) {
 			// get 4 best circuits with 3 elements
 			for (int i = 0; i < sortedList.size(); i++) {
@@ -249,92 +364,259 @@ public class MCWorker extends Thread {
 			// get 2 best
 			branch1 = MCRank.sortByErrorZAbs(yz, branch1, 2);
 			// Optimize them
-			branch1.get(0).optimizeThreaded(ys);
-			t1_0 = new Thread(branch1.get(0), "EQC-Thread-t1_0");
-			t1_0.start();
-			branch1.get(1).optimizeThreaded(ys);
-			t1_1 = new Thread(branch1.get(1), "EQC-Thread-t1_1");
-			t1_1.start();
+			future1 = MCFitScheduler.optimizeAll(branch1, ys);
 		}
 
 		// ----------------------------------------
 		// Branch 3
 		// extend optimized Models with 2 elements
 		// ----------------------------------------
-		branch3 = new ArrayList<MCEqCircuit>(2);
+		CompletableFuture<List<MCEqCircuit>> future3 = CompletableFuture
+				.completedFuture(new ArrayList<MCEqCircuit>(0));
 		if (doExpand) {
-			// Wait for thread completion
-			try {
-				t2_0.join();
-				t2_1.join();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-			// Calculate rank
-			branch2 = MCRank.sortByErrorZAbs(yz, branch2, 2);
-
-			branch3.add(MCExpander.expand(branch2.get(0), yz, w));
-			branch3.add(MCExpander.expand(branch2.get(1), yz, w));
+			future3 = future2.thenApply(b2 -> {
+				List<MCEqCircuit> branch3 = new ArrayList<MCEqCircuit>(2);
+				branch3.add(MCExpander.expand(b2.get(0), yz, w, features));
+				branch3.add(MCExpander.expand(b2.get(1), yz, w, features));
+				return branch3;
+			});
 		}
 
 		// ----------------------------------------
 		// Last rank
 		// ----------------------------------------
+		// merge three branches
+		CompletableFuture<List<MCEqCircuit>> merged = future1.thenCombine(future2, (b1, b2) -> {
+			List<MCEqCircuit> rank = new ArrayList<MCEqCircuit>(6);
+			rank.addAll(b1);
+			rank.addAll(b2);
+			return rank;
+		}).thenCombine(future3, (rank, b3) -> {
+			rank.addAll(b3);
+			// Sort them
+			return (List<MCEqCircuit>) MCRank.sortByErrorZAbs(yz, rank);
+		});
 
-		// Wait for all threads completion
-		try {
-			if (do3ElementOptimize) {
-				t1_0.join();
-				t1_1.join();
+		// ----------------------------------------
+		// Exhaustive mode
+		// optimize all other allowed models as well
+		// ----------------------------------------
+		if (ops.exhaustive) {
+			List<MCEqCircuit> heuristic = new ArrayList<MCEqCircuit>(branch1);
+			heuristic.addAll(branch2);
+			merged = merged.thenCombine(exhaustiveStage(userCircuits, heuristic, solvedSnapshot, vfMatch, w, yz, ys),
+					(rank, b5) -> {
+						rank.addAll(b5);
+						return (List<MCEqCircuit>) MCRank.sortByErrorZAbs(yz, rank);
+					});
+		}
+
+		// ----------------------------------------
+		// Branch 5
+		// model matched by the vector fit, if no other branch optimizes it
+		// ----------------------------------------
+		else if (vfMatch != null && vfMatch.getCircuitType().ordinal() > 7) {
+			List<MCEqCircuit> branch5 = new ArrayList<MCEqCircuit>(1);
+			for (MCEqCircuit c : userCircuits) {
+				if (c.getCircuitType() == vfMatch.getCircuitType()) {
+					c.setParameters(withManualParams(vfMatch.getParameters()));
+					branch5.add(c);
+				}
 			}
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+			merged = merged.thenCombine(MCFitScheduler.optimizeAll(branch5, ys), (rank, b5) -> {
+				rank.addAll(b5);
+				return (List<MCEqCircuit>) MCRank.sortByErrorZAbs(yz, rank);
+			});
 		}
 
-		// merge three branches
-		rank = new ArrayList<MCEqCircuit>(6);
-		if (do3ElementOptimize) {
-			rank.add(branch1.get(0));
-			rank.add(branch1.get(1));
+		return finish(merged, rfData, circuitIdxes, ys, yz, w, rref);
+	}
+
+	/**
+	 * Adds the skin effect models to the rank and creates the best circuit
+	 * 
+	 * @param merged
+	 *            future of the optimized models, best first
+	 * @param rfData
+	 *            measurement data
+	 * @param circuitIdxes
+	 *            models allowed by the options
+	 * @param ys
+	 *            measured scattering data
+	 * @param yz
+	 *            measured impedance data
+	 * @param w
+	 *            frequency vector in omega
+	 * @param rref
+	 *            reference resistance
+	 * @return future of the best equivalent circuit
+	 */
+	private CompletableFuture<MCEqCircuit> finish(CompletableFuture<List<MCEqCircuit>> merged, final RFData rfData,
+			final CircuitType[] circuitIdxes, final Complex[] ys, final Complex[] yz, final double[] w,
+			final double rref) {
+		// ----------------------------------------
+		// Branch 4
+		// skin effect models seeded from the optimized models
+		// ----------------------------------------
+		if (ops.skinAutoSelect) {
+			merged = merged.thenCompose(rank -> skinStage(rank, circuitIdxes, ys, yz, w, rref));
 		}
-		rank.add(branch2.get(0));
-		rank.add(branch2.get(1));
-		if (doExpand) {
-			rank.add(branch3.get(0));
-			rank.add(branch3.get(1));
+
+		return merged.thenApply(rank -> {
+			// create new model for thread safety
+			MCEqCircuit best = new MCEqCircuit(rank.get(0).getCircuitType(), rank.get(0).getParameters());
+			best.setOps(ops);
+			best.setWVector(w);
+			best.setZ0(rref);
+			best.setFitWorkspace(new MCFitWorkspace(rfData, ops, ys, rref));
+			absParams(best);
+			return best;
+		});
+	}
+
+	/**
+	 * Refits the circuit from its current parameters. The filtered data and
+	 * reference resistance of the previous fit are reused if the circuit was
+	 * fitted to the same data before.
+	 * 
+	 * @param rfData
+	 *            measurement data
+	 * @return future of the refitted circuit
+	 */
+	private CompletableFuture<MCEqCircuit> optimizeOnly(RFData rfData) {
+		MCFitWorkspace ws = eqCircuit.getFitWorkspace();
+		if (ws == null || ws.matches(rfData, eqCircuit.getOps()) == false) {
+			double rref = MCSScaler.scaleImpedance(rfData.getzDataView(), scalerTolerance);
+			MCFrequencyWindow window = new MCFrequencyWindow(eqCircuit.getOps(), rfData.getfDataView());
+			Complex[] ys = RFData.z2s(rref, window.view(rfData.getzDataView()).toArray());
+			ws = new MCFitWorkspace(rfData, eqCircuit.getOps(), ys, rref);
+			eqCircuit.setFitWorkspace(ws);
 		}
-		// Sort them
-		rank = MCRank.sortByErrorZAbs(yz, rank, 1);
+		eqCircuit.setZ0(ws.getRref());
+		eqCircuit.setCancelToken(cancelToken);
+		return MCFitScheduler.optimize(eqCircuit, ws.getYs()).thenApply(eqc -> {
+			absParams(eqc);
+			return eqc;
+		});
+	}
 
-		// Done doing magic, wait for all threads to complete
-		try {
-			t2_0.join();
-			t2_1.join();
-			if (do3ElementOptimize) {
-				t1_0.join();
-				t1_1.join();
+	/**
+	 * Optimizes every allowed model without skin effect that is not optimized
+	 * by the heuristic branches, all of them concurrently. Models without
+	 * analytical solution are seeded from the parameters of the best solved
+	 * models, from the least square guess or from the vector fit, whichever is
+	 * closer to the data.
+	 * The fits share the best error so far, a fit that stalls far above it is
+	 * abandoned.
+	 * 
+	 * @param userCircuits
+	 *            circuits of all allowed models, solved where possible
+	 * @param heuristic
+	 *            circuits optimized by the heuristic branches
+	 * @param solved
+	 *            copies of the analytically solved circuits taken before the
+	 *            heuristic branches started, best first
+	 * @param vfMatch
+	 *            model matched by the vector fit, null if none
+	 * @param w
+	 *            frequency vector in omega
+	 * @param yz
+	 *            measured impedance data
+	 * @param ys
+	 *            measured scattering data
+	 * @return future of the optimized models
+	 */
+	private CompletableFuture<List<MCEqCircuit>> exhaustiveStage(List<MCEqCircuit> userCircuits,
+			List<MCEqCircuit> heuristic, List<MCEqCircuit> solved, MCVectorFit.Match vfMatch, double[] w,
+			Complex[] yz, Complex[] ys) {
+		DoubleAccumulator best = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+		List<MCEqCircuit> circuits = new ArrayList<MCEqCircuit>(userCircuits.size());
+		for (MCEqCircuit c : userCircuits) {
+			int type = c.getCircuitType().ordinal();
+			boolean done = false;
+			for (MCEqCircuit h : heuristic) {
+				done |= h.getCircuitType() == c.getCircuitType();
 			}
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-		// create new model for thread safety
-		MCEqCircuit best = new MCEqCircuit(rank.get(0).getCircuitType(), rank.get(0).getParameters());
-		best.setOps(ops);
-		best.setWVector(w);
-		best.setZ0(rref);
-		absParams(best);
-		success(best);
+			if (done || type >= MCUtil.nModelSkinStart)
+				continue;
+			if (type > 7) {
+				c.setParameters(exhaustiveSeed(c.getCircuitType(), solved));
+				applyGuess(c, MCInitialGuess.guess(c.getCircuitType(), w, yz), ys);
+				if (vfMatch != null && vfMatch.getCircuitType() == c.getCircuitType()) {
+					applyGuess(c, vfMatch.getParameters(), ys);
+				}
+			}
+			MCMultiStartEngine engine = new MCMultiStartEngine(1, 0.0);
+			engine.setConvergenceWindow(ops.convergenceWindow, ops.convergenceTolerance);
+			engine.setDeterministic(ops.deterministic, ops.randomSeed);
+			engine.setSharedBest(best);
+			engine.setErrorFloor(exhaustiveErrorFloor * ys.length);
+			c.setFitEngine(engine);
+			circuits.add(c);
+		}
+		return MCFitScheduler.optimizeAll(circuits, ys);
 	}
 
 	/**
-	 * Creates an equivalent circuit without optimizing. adds default parameters
+	 * Creates the initial parameters of a model without analytical solution.
+	 * Every element takes the value of the best solved model having it, the
+	 * second resistor and capacitor start at the value of the first one.
 	 * 
+	 * @param type
+	 *            circuit type
+	 * @param solved
+	 *            analytically solved circuits, best first
+	 * @return parameter array [7]
+	 */
+	private double[] exhaustiveSeed(CircuitType type, List<MCEqCircuit> solved) {
+		double[] p = new double[7];
+		for (int i = 0; i < 7; i++) {
+			for (MCEqCircuit c : solved) {
+				if (MCUtil.parameter2TopoIdx[c.getCircuitType().ordinal()][i] != 99 && c.getParameters()[i] != 0.0) {
+					p[i] = c.getParameters()[i];
+					break;
+				}
+			}
+		}
+		p[3] = p[0];
+		p[6] = p[5];
+		return withManualParams(p);
+	}
+
+	/**
+	 * Returns a copy of the parameters with the manual parameters of the
+	 * options applied
+	 * 
+	 * @param p
+	 *            parameter array [7]
+	 * @return new parameter array [7]
+	 */
+	private double[] withManualParams(double[] p) {
+		double[] res = p.clone();
+		for (int i = 0; i < 7; i++) {
+			if (ops.paramsAuto[i] == false) {
+				res[i] = ops.params[i];
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Creates an equivalent circuit without optimizing. adds the least square
+	 * guess or default parameters
+	 * 
+	 * @param w
+	 *            frequency vector in omega
+	 * @param yz
+	 *            measured impedance data
 	 * @return
 	 */
-	private MCEqCircuit createManualCircuit() {
+	private MCEqCircuit createManualCircuit(double[] w, Complex[] yz) {
 		MCEqCircuit eqc = new MCEqCircuit(CircuitType.values()[ops.modelID]);
 		// Copy default parameters
-		double[] p = { 1e-3, 1e3, 1.0, 1e-3, 1e-9, 1e-12, 1e-12 };
+		double[] p = MCInitialGuess.guess(eqc.getCircuitType(), w, yz);
+		if (p == null)
+			p = new double[] { 1e-3, 1e3, 1.0, 1e-3, 1e-9, 1e-12, 1e-12 };
 		if (ops.params[0] != 0.0)
 			p[0] = ops.params[0];
 		if (ops.params[1] != 0.0)
@@ -353,6 +635,94 @@ public class MCWorker extends Thread {
 		return eqc;
 	}
 
+	/**
+	 * Prepares a circuit for solving and optimizing
+	 * 
+	 * @param c
+	 *            MCEqCircuit to be prepared
+	 * @param w
+	 *            frequency vector in omega
+	 * @param rref
+	 *            reference resistance
+	 * @return the prepared circuit
+	 */
+	private MCEqCircuit prepareCircuit(MCEqCircuit c, double[] w, double rref) {
+		c.setWVector(w);
+		c.setZ0(rref);
+		c.setOps(ops);
+		c.setCancelToken(cancelToken);
+		return c;
+	}
+
+	/**
+	 * Fits the skin effect models derived from the ranked models, all of them
+	 * concurrently. Every topology gets the evaluation and time budget of the
+	 * options. The skin effect models are put in front of the rank if the best
+	 * of them beats the best model without skin effect by skinGain.
+	 * 
+	 * @param rank
+	 *            optimized models, best first
+	 * @param allowed
+	 *            models allowed by the options
+	 * @param ys
+	 *            measured scattering data
+	 * @param yz
+	 *            measured impedance data
+	 * @param w
+	 *            frequency vector in omega
+	 * @param rref
+	 *            reference resistance
+	 * @return future of the new rank, best first
+	 */
+	private CompletableFuture<List<MCEqCircuit>> skinStage(final List<MCEqCircuit> rank, CircuitType[] allowed,
+			Complex[] ys, final Complex[] yz, double[] w, double rref) {
+		if (stopWorker) {
+			return CompletableFuture.completedFuture(rank);
+		}
+		List<CircuitType> allowedList = Arrays.asList(allowed);
+		List<MCEqCircuit> skin = new ArrayList<MCEqCircuit>();
+		double fMax = w[w.length - 1] / (2.0 * Math.PI);
+
+		for (MCEqCircuit base : rank) {
+			CircuitType type = MCUtil.baseToSkinModel(base.getCircuitType());
+			if (type == null || allowedList.contains(type) == false)
+				continue;
+			boolean exists = false;
+			for (MCEqCircuit c : skin) {
+				exists |= c.getCircuitType() == type;
+			}
+			if (exists)
+				continue;
+
+			double[] p = MCUtil.skinSeedParam(base.getCircuitType(), base.getParameters(), fMax);
+			MCEqCircuit c = prepareCircuit(new MCEqCircuit(type, p), w, rref);
+			MCMultiStartEngine engine = new MCMultiStartEngine(ops.multiStarts, ops.multiStartSpread);
+			engine.setMaxEval(Math.max(ops.skinEvalBudget / Math.max(ops.multiStarts, 1), 1));
+			engine.setTimeBudget(ops.skinTimeBudget);
+			engine.setConvergenceWindow(ops.convergenceWindow, ops.convergenceTolerance);
+			engine.setDeterministic(ops.deterministic, ops.randomSeed);
+			c.setFitEngine(engine);
+			skin.add(c);
+		}
+		if (skin.isEmpty())
+			return CompletableFuture.completedFuture(rank);
+
+		return MCFitScheduler.optimizeAll(skin, ys).thenApply(fitted -> {
+			MCRank.Ranking sorted = MCRank.rank(yz, fitted, fitted.size());
+			double baseError = MCErrorSum.getError(yz, rank.get(0).getZ());
+			double skinError = sorted.getError(0);
+			List<MCEqCircuit> res = new ArrayList<MCEqCircuit>(rank.size() + sorted.size());
+			if (skinError < skinGain * baseError) {
+				res.addAll(sorted.getCircuits());
+				res.addAll(rank);
+			} else {
+				res.addAll(rank);
+				res.addAll(sorted.getCircuits());
+			}
+			return res;
+		});
+	}
+
 	/**
 	 * Changes all the parameters in the Equivalent circuit c with their
 	 * absolute value
@@ -371,8 +741,17 @@ public class MCWorker extends Thread {
 	// Private methods
 	// ================================================================================
 	private void success(MCEqCircuit eqc) {
-		if (stopWorker == false) {
-			parentModel.mcWorkerSuccess(eqc, this.workerMode);
+		if (stopWorker == false && parentModel != null) {
+			parentModel.mcWorkerSuccess(eqc, this.workerMode, fittedData);
+		}
+	}
+
+	private void failed(Throwable ex) {
+		if (ex instanceof CompletionException && ex.getCause() != null) {
+			ex = ex.getCause();
+		}
+		if (stopWorker == false && parentModel != null) {
+			parentModel.mcWorkerFailed(eqCircuit, this.workerMode, fittedData, ex);
 		}
 	}
 
@@ -387,35 +766,20 @@ public class MCWorker extends Thread {
 	 *            measured scattering data
 	 * @param circuits
 	 *            list of possible circuit models
+	 * @param features
+	 *            features of the measurement
 	 */
-	private void analyticalSolver(double[] w, Complex[] yz, Complex[] ys, List<MCEqCircuit> circuits) {
-		// circuits.get(0).getS()[0].abs()
-		double yzAbs[] = new double[yz.length];
-		double ysAbs[] = new double[ys.length];
-		for (int i = 0; i < ys.length; i++) { // ysAbs
-			ysAbs[i] = ys[i].abs();
-		}
-		for (int i = 0; i < yz.length; i++) { // yzAbs
-			yzAbs[i] = yz[i].abs();
-		}
-
-		double[] diffSAbs = new double[ys.length - 1];
-
+	private void analyticalSolver(double[] w, Complex[] yz, Complex[] ys, List<MCEqCircuit> circuits,
+			RFFeatures features) {
 		double R;
 		double Y;
 		double L;
 		double C;
 
-		// Sinnvolle Messpunkte ausw�hlen
-		diffSAbs = MathUtil.diff(ysAbs);
-		int index1 = MathUtil.getMaxIndex(diffSAbs);
-		if (index1 == 0) {
-			index1 = 1;
-		}
-		int index2 = MathUtil.getMinIndex(diffSAbs);
-		if (index2 == 0) {
-			index2 = 1;
-		}
+		// key frequencies around the self resonance
+		int[] keys = keyIndexes(w, features);
+		int index1 = keys[0];
+		int index2 = keys[1];
 
 		double w21 = w[index1];
 		double w22 = w[index2];
@@ -484,13 +848,81 @@ public class MCWorker extends Thread {
 		circuits.get(7).setParameter(0, R); // R
 		circuits.get(7).setParameter(5, C); // C
 		circuits.get(7).setParameter(4, L); // L
+
+		// least square guess from all points
+		for (MCEqCircuit c : circuits) {
+			applyGuess(c, MCInitialGuess.guess(c.getCircuitType(), w, yz), ys);
+		}
+	}
+
+	/**
+	 * Picks the two points the closed form solutions are calculated at. With
+	 * the self resonance in the band these are its half power points, where
+	 * the resistive and the reactive part are of the same size, else a third
+	 * and two thirds of the log band. The first point is skipped.
+	 * 
+	 * @param w
+	 *            frequency vector in omega
+	 * @param features
+	 *            features of the measurement
+	 * @return two different indexes, as long as there are three points
+	 */
+	private int[] keyIndexes(double[] w, RFFeatures features) {
+		int last = w.length - 1;
+		double wLo = w[Math.min(1, last)];
+		double wHi = w[last];
+		double wSrf = 2.0 * Math.PI * features.getSrf();
+		double q = features.getQ();
+		double w1, w2;
+		if (wSrf > wLo && wSrf < wHi && q > 0) {
+			// w1 * w2 = wSrf^2 and w2 - w1 = wSrf / Q
+			double a = Math.sqrt(1.0 + 1.0 / (4.0 * q * q));
+			w1 = wSrf * (a - 1.0 / (2.0 * q));
+			w2 = wSrf * (a + 1.0 / (2.0 * q));
+		} else {
+			w1 = wLo * Math.pow(wHi / wLo, 1.0 / 3.0);
+			w2 = wLo * Math.pow(wHi / wLo, 2.0 / 3.0);
+		}
+		int i1 = Math.min(Math.max(RFFeatures.nearestIndex(w, w1), 1), last);
+		int i2 = Math.min(Math.max(RFFeatures.nearestIndex(w, w2), 1), last);
+		if (i1 == i2) {
+			i2 = Math.min(i1 + 1, last);
+		}
+		return new int[] { i1, i2 };
+	}
+
+	/**
+	 * Replaces the parameters of a circuit with an initial guess if the guess
+	 * is closer to the measured data
+	 * 
+	 * @param c
+	 *            prepared circuit
+	 * @param guess
+	 *            parameter array [7], may be null
+	 * @param ys
+	 *            measured scattering data
+	 */
+	private void applyGuess(MCEqCircuit c, double[] guess, Complex[] ys) {
+		if (guess == null)
+			return;
+		double[] p = withManualParams(guess);
+		double error = MCErrorSum.getError(ys, c.getS());
+		MCEqCircuit test = c.copy();
+		test.setParameters(p);
+		double guessError = MCErrorSum.getError(ys, test.getS());
+		// a start without finite error is always replaced
+		if (guessError < error || (!(error < Double.POSITIVE_INFINITY) && guessError < Double.POSITIVE_INFINITY)) {
+			c.setParameters(p);
+		}
 	}
 
 	/**
-	 * Stops the worker
+	 * Stops the worker, all running optimizations abort at their next
+	 * evaluation and no result is reported
 	 */
 	public void stopWork() {
 		this.stopWorker = true;
+		cancelToken.cancel();
 	}
 
 }
@@ -10,8 +10,6 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Observable;
-import java.util.Observer;
 
 import javax.swing.Box;
 import javax.swing.JButton;
@@ -27,6 +25,9 @@ import javax.swing.event.DocumentListener;
 
 import ezrlc.Controller.Controller;
 import ezrlc.Model.Model;
+import ezrlc.Model.ModelEvent;
+import ezrlc.Model.ModelEventFilter;
+import ezrlc.Model.ModelListener;
 import ezrlc.Plot.RectPlot.Axis.Scale;
 import ezrlc.Plot.RectPlot.RectPlotAddMeasurementWindow;
 import ezrlc.Plot.RectPlot.RectPlotSettings;
@@ -44,7 +45,7 @@ import ezrlc.View.JEngineerField;
  * @author noah
  *
  */
-public class Figure extends JPanel implements ActionListener, Observer, DocumentListener {
+public class Figure extends JPanel implements ActionListener, ModelListener, DocumentListener {
 	private static final long serialVersionUID = 1L;
 
 	// ================================================================================
@@ -194,6 +195,46 @@ public class Figure extends JPanel implements ActionListener, Observer, Document
 		panel_1.add(btnDeleteGraph, gbc_btnDeleteGraph);
 		btnDeleteGraph.addActionListener(this);
 		btnAutoscale.addActionListener(this);
+
+		// only events of the datasets shown here
+		controller.addModelListener(this, new ModelEventFilter() {
+			@Override
+			public boolean accept(ModelEvent event) {
+				return isConcerned(event);
+			}
+		});
+	}
+
+	// ================================================================================
+	// Private Functions
+	// ================================================================================
+	/**
+	 * Checks if the event concerns the figure
+	 * 
+	 * @param event
+	 *            model event
+	 * @return true for events of the whole model and of datasets shown in the
+	 *         figure
+	 */
+	private boolean isConcerned(ModelEvent event) {
+		switch (event.getType()) {
+		case MANUAL:
+		case FILE:
+			return true;
+		case DATASET:
+			int[] ids = getDataSetIDs();
+			return ids != null && event.concernsAnyDataSet(ids);
+		case REMOVE_DATASET:
+			// the plot forgets the dataset before the model, the label is
+			// still there
+			for (DataSetLabelPanel lbl : dataSetLabelPanels) {
+				if (lbl != null && event.concernsDataSet(lbl.getID()))
+					return true;
+			}
+			return false;
+		default:
+			return false;
+		}
 	}
 
 	// ================================================================================
@@ -305,7 +346,7 @@ public class Figure extends JPanel implements ActionListener, Observer, Document
 			// Save the data entry id in the list
 			this.dataIDList.add(id);
 			rectPlot.addDataSet(id, this.newRectMeasurementWindow.getNewMeasurement());
-			controller.manualNotify();
+			controller.notifyDataSet(id);
 			rectPlot.repaint();
 			p = new DataSetLabelPanel(this, rectPlot.getDataSetSettings(id).getLineColor(), id,
 					rectPlot.getDataSetSettings(id).getLabelName(), rectPlot.getDataSetSettings(id).getLabelType());
@@ -314,7 +355,7 @@ public class Figure extends JPanel implements ActionListener, Observer, Document
 			// Save the data entry in the list
 			this.dataIDList.add(id);
 			smithChart.addDataSet(id, this.newSmithMeasurementWindow.getNewMeasurement());
-			controller.manualNotify();
+			controller.notifyDataSet(id);
 			smithChart.repaint();
 			p = new DataSetLabelPanel(this, smithChart.getDataSetSettings(id).getLineColor(), id,
 					smithChart.getDataSetSettings(id).getLabelName(), smithChart.getDataSetSettings(id).getLabelType());
@@ -408,13 +449,12 @@ public class Figure extends JPanel implements ActionListener, Observer, Document
 	}
 
 	@Override
-	public void update(Observable o, Object arg) {
-		Model model = (Model) o;
+	public void modelChanged(Model model, ModelEvent event) {
 		// update plots
 		if (plotType == ENPlotType.RECTANGULAR)
-			rectPlot.update(o, arg);
+			rectPlot.update(model, event);
 		else if (plotType == ENPlotType.SMITH)
-			smithChart.update(o, arg);
+			smithChart.update(model, event);
 		// update data set labels
 		for (DataSetLabelPanel lbl : dataSetLabelPanels) {
 			// if data set doesnt exist remove panel
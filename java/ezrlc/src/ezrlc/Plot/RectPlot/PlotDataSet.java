@@ -10,7 +10,7 @@ import java.awt.geom.GeneralPath;
 import ezrlc.Model.DataSet;
 import ezrlc.Model.RectPlotNewMeasurement;
 import ezrlc.Plot.DataSetSettings;
-import ezrlc.util.MathUtil;
+import ezrlc.util.DoubleArrayView;
 
 /**
  * Plot data set for a standard rectangular plot
@@ -23,8 +23,8 @@ public class PlotDataSet {
 	// ================================================================================
 	// Private Data
 	// ================================================================================
-	private double[] x_data;
-	private double[] y_data;
+	private DoubleArrayView x_data;
+	private DoubleArrayView y_data;
 	private int points = 0;
 	private double x_max;
 	private double x_min;
@@ -48,7 +48,8 @@ public class PlotDataSet {
 	// Constructors
 	// ================================================================================
 	/**
-	 * Add new Dataset. Both parameters must be of the same size!!
+	 * Add new Dataset, the data is shared. Both parameters must be of the
+	 * same size!!
 	 * 
 	 * @param x:
 	 *            X Data
@@ -57,27 +58,25 @@ public class PlotDataSet {
 	 * @param nm
 	 *            nm
 	 */
-	public PlotDataSet(double[] x, double[] y, RectPlotNewMeasurement nm) {
-		if (x.length != y.length) {
+	public PlotDataSet(DoubleArrayView x, DoubleArrayView y, RectPlotNewMeasurement nm) {
+		if (x.length() != y.length()) {
 			System.err.println("PlotDataSet: Error! Data not the same size");
 			return;
 		}
 		this.nm = nm;
-		x_data = new double[x.length];
-		y_data = new double[x.length];
-		System.arraycopy(x, 0, x_data, 0, x.length);
-		System.arraycopy(y, 0, y_data, 0, x.length);
-		this.points = x.length;
+		x_data = x;
+		y_data = y;
+		this.points = x.length();
 		this.data_pts = new Point[this.points];
 		for (int i = 0; i < this.points; i++) {
 			data_pts[i] = new Point(0, 0);
 		}
 
 		// Get the datas max and min
-		x_max = MathUtil.getMax(this.x_data);
-		x_min = MathUtil.getMin(this.x_data);
-		y_max = MathUtil.getMax(this.y_data);
-		y_min = MathUtil.getMin(this.y_data);
+		x_max = this.x_data.getMax();
+		x_min = this.x_data.getMin();
+		y_max = this.y_data.getMax();
+		y_min = this.y_data.getMin();
 
 		this.x_span = this.x_max - this.x_min;
 		if (this.x_span == 0)
@@ -106,8 +105,8 @@ public class PlotDataSet {
 	private void eval() {
 		int i = 0;
 		for (Point point : this.data_pts) {
-			point.x = this.x_axis.getPixelValue(x_data[i]);
-			point.y = this.y_axis.getPixelValue(y_data[i]);
+			point.x = this.x_axis.getPixelValue(x_data.get(i));
+			point.y = this.y_axis.getPixelValue(y_data.get(i));
 			i++;
 		}
 
@@ -154,16 +153,12 @@ public class PlotDataSet {
 		this.y_axis = y;
 	}
 
-	public double[] getXData() {
-		double[] res = new double[x_data.length];
-		System.arraycopy(x_data, 0, res, 0, x_data.length);
-		return res;
+	public DoubleArrayView getXData() {
+		return x_data;
 	}
 
-	public double[] getYData() {
-		double[] res = new double[y_data.length];
-		System.arraycopy(y_data, 0, res, 0, y_data.length);
-		return res;
+	public DoubleArrayView getYData() {
+		return y_data;
 	}
 
 	/**
@@ -11,18 +11,18 @@ import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Observable;
-import java.util.Observer;
 
 import javax.swing.JPanel;
 
 import ezrlc.Model.Model;
+import ezrlc.Model.ModelEvent;
 import ezrlc.Model.RectPlotNewMeasurement;
 import ezrlc.Plot.DataSetSettings;
 import ezrlc.Plot.RectPlot.Axis.Scale;
 import ezrlc.Plot.RectPlot.Grid.Orientation;
 import ezrlc.RFData.RFData.MeasurementType;
 import ezrlc.util.DataSource;
+import ezrlc.util.DoubleArrayView;
 import ezrlc.util.MathUtil;
 import ezrlc.util.UIUtil;
 
@@ -32,7 +32,7 @@ import ezrlc.util.UIUtil;
  * @author noah
  *
  */
-public class RectangularPlot extends JPanel implements Observer, ComponentListener {
+public class RectangularPlot extends JPanel implements ComponentListener {
 	private static final long serialVersionUID = 1L;
 	// ================================================================================
 	// Private Data
@@ -137,11 +137,12 @@ public class RectangularPlot extends JPanel implements Observer, ComponentListen
 	}
 
 	/**
-	 * Updates the local stored datasets
+	 * Updates the local stored datasets named by the event
 	 * 
 	 * @param model
+	 * @param event
 	 */
-	private void updateDatasets(Model model) {
+	private void updateDatasets(Model model, ModelEvent event) {
 		int i = 0;
 		PlotDataSet dataSet;
 		// // Expand data set list to size
@@ -150,6 +151,10 @@ public class RectangularPlot extends JPanel implements Observer, ComponentListen
 		// }
 		// fill datasets
 		for (Integer integer : dataSetIDs) {
+			if (event.concernsDataSet(integer) == false) {
+				i++;
+				continue;
+			}
 			dataSet = new PlotDataSet(model.getDataSet(integer.intValue()));
 			dataSet.setAxis(this.horAxis, this.verAxis);
 			dataSet.setDataSetSettings(this.dataSetSettings.get(i));
@@ -339,10 +344,16 @@ public class RectangularPlot extends JPanel implements Observer, ComponentListen
 		this.repaint();
 	}
 
-	@Override
-	public void update(Observable o, Object arg) {
-		Model model = (Model) o;
-		this.updateDatasets(model);
+	/**
+	 * Updates the datasets named by the model event and repaints the plot
+	 * 
+	 * @param model
+	 *            model
+	 * @param event
+	 *            model event
+	 */
+	public void update(Model model, ModelEvent event) {
+		this.updateDatasets(model, event);
 		repaint();
 	}
 
@@ -411,10 +422,11 @@ public class RectangularPlot extends JPanel implements Observer, ComponentListen
 			}
 			// if log X-axis, set minimum at first non-zero value
 			if (sx == Scale.LOG) {
-				if (dataSets.get(i).getXData()[0] == 0) {
-					xmin = dataSets.get(i).getXData()[1];
+				DoubleArrayView x = dataSets.get(i).getXData();
+				if (x.get(0) == 0) {
+					xmin = x.get(1);
 				} else {
-					xmin = dataSets.get(i).getXData()[0];
+					xmin = x.get(0);
 				}
 			}
 			i++;
@@ -429,9 +441,10 @@ public class RectangularPlot extends JPanel implements Observer, ComponentListen
 		if (sy == Scale.LOG) {
 			ymin = Double.MAX_VALUE;
 			for (PlotDataSet dataset : this.dataSets) {
-				for (Double d : dataset.getYData()) {
-					if ((d > 0) && (d < ymin)) {
-						ymin = d;
+				DoubleArrayView y = dataset.getYData();
+				for (int j = 0; j < y.length(); j++) {
+					if ((y.get(j) > 0) && (y.get(j) < ymin)) {
+						ymin = y.get(j);
 					}
 				}
 			}
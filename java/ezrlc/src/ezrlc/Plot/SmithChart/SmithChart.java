@@ -6,12 +6,11 @@ import java.awt.Graphics;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Observable;
-import java.util.Observer;
 
 import javax.swing.JPanel;
 
 import ezrlc.Model.Model;
+import ezrlc.Model.ModelEvent;
 import ezrlc.Model.SmithChartNewMeasurement;
 import ezrlc.Plot.DataSetSettings;
 import ezrlc.util.MathUtil;
@@ -23,7 +22,7 @@ import ezrlc.util.UIUtil;
  * @author noah
  *
  */
-public class SmithChart extends JPanel implements Observer {
+public class SmithChart extends JPanel {
 	private static final long serialVersionUID = 1L;
 
 	// ================================================================================
@@ -56,14 +55,19 @@ public class SmithChart extends JPanel implements Observer {
 	// Private Functions
 	// ================================================================================
 	/**
-	 * Updates the local stored datasets
+	 * Updates the local stored datasets named by the event
 	 * 
 	 * @param model
+	 * @param event
 	 */
-	private void updateDatasets(Model model) {
+	private void updateDatasets(Model model, ModelEvent event) {
 		int i = 0;
 		SmithChartDataSet set;
 		for (Integer id : dataSetIDs) {
+			if (event.concernsDataSet(id) == false) {
+				i++;
+				continue;
+			}
 			set = new SmithChartDataSet(model.getDataSet(id));
 			set.setGrid(this.grid);
 			set.setDataSetSettings(this.dataSetSettings.get(i));
@@ -93,10 +97,16 @@ public class SmithChart extends JPanel implements Observer {
 		this.dataSets.add(null);
 	}
 
-	@Override
-	public void update(Observable o, Object arg) {
-		Model model = (Model) o;
-		this.updateDatasets(model);
+	/**
+	 * Updates the datasets named by the model event and repaints the chart
+	 * 
+	 * @param model
+	 *            model
+	 * @param event
+	 *            model event
+	 */
+	public void update(Model model, ModelEvent event) {
+		this.updateDatasets(model, event);
 		repaint();
 	}
 
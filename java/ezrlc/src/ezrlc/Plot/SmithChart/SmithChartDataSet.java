@@ -11,7 +11,8 @@ import java.util.List;
 import ezrlc.Model.DataSet;
 import ezrlc.Model.SmithChartNewMeasurement;
 import ezrlc.Plot.DataSetSettings;
-import ezrlc.util.Complex;
+import ezrlc.util.ComplexArrayView;
+import ezrlc.util.DoubleArrayView;
 import ezrlc.util.PointD;
 
 /**
@@ -27,8 +28,8 @@ public class SmithChartDataSet {
 	// ================================================================================
 	private SmithChartGrid grid;
 
-	private Complex[] data;
-	private double[] freq;
+	private ComplexArrayView data;
+	private DoubleArrayView freq;
 	private int points;
 
 	private DataSetSettings settings = new DataSetSettings();
@@ -45,7 +46,7 @@ public class SmithChartDataSet {
 	// Constructors
 	// ================================================================================
 	/**
-	 * * Creates a new SmithChart Dataset
+	 * * Creates a new SmithChart Dataset, the data is shared
 	 * 
 	 * @param data
 	 *            List of complex data
@@ -54,18 +55,15 @@ public class SmithChartDataSet {
 	 * @param nm
 	 *            new measurement
 	 */
-	public SmithChartDataSet(double[] freq, Complex[] data, SmithChartNewMeasurement nm) {
-		if (data.length != freq.length) {
+	public SmithChartDataSet(DoubleArrayView freq, ComplexArrayView data, SmithChartNewMeasurement nm) {
+		if (data.length() != freq.length()) {
 			System.err.println("FATAL(SmithChartDataSet): data size not equal freq size");
 			return;
 		}
 		this.nm = nm;
-		// Copy Data
-		this.data = new Complex[data.length];
-		System.arraycopy(data, 0, this.data, 0, data.length);
-		this.freq = new double[freq.length];
-		System.arraycopy(freq, 0, this.freq, 0, freq.length);
-		this.points = data.length;
+		this.data = data;
+		this.freq = freq;
+		this.points = data.length();
 	}
 
 	public SmithChartDataSet(DataSet dataSet) {
@@ -101,7 +99,7 @@ public class SmithChartDataSet {
 		data_pts = new ArrayList<Point>(this.points);
 
 		for (int i = 0; i < this.points; i++) {
-			p = sm.getPixelLocation(this.data[i]);
+			p = sm.getPixelLocation(this.data.get(i));
 			data_pts.add(p.point());
 		}
 
@@ -12,6 +12,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import ezrlc.util.Complex;
+import ezrlc.util.ComplexArrayView;
+import ezrlc.util.DoubleArrayView;
 
 /**
  * Handels touchstone parsing and data conversion
@@ -75,6 +77,9 @@ public class RFData {
 	// Frequency points
 	private double[] fData;
 
+	// Features, extracted on first use
+	private RFFeatures features;
+
 	private int maxDataPoints = 1005;
 
 	// ================================================================================
@@ -116,6 +121,8 @@ public class RFData {
 		double freq, data1, data2;
 		String[] linedata;
 
+		features = null;
+
 		// Try opening the input file
 		try {
 			file = new FileReader(this.fname);
@@ -456,6 +463,33 @@ public class RFData {
 		return res;
 	}
 
+	/**
+	 * Returns the frequency points without copying them
+	 * 
+	 * @return read only view of the frequency points
+	 */
+	public DoubleArrayView getfDataView() {
+		return new DoubleArrayView(fData);
+	}
+
+	/**
+	 * Returns the Z Data without copying it
+	 * 
+	 * @return read only view of the z data
+	 */
+	public ComplexArrayView getzDataView() {
+		return new ComplexArrayView(zData);
+	}
+
+	/**
+	 * Returns the Y Data without copying it
+	 * 
+	 * @return read only view of the y data
+	 */
+	public ComplexArrayView getyDataView() {
+		return new ComplexArrayView(yData);
+	}
+
 	/**
 	 * Returns a list of S Data
 	 * 
@@ -467,6 +501,15 @@ public class RFData {
 		return res;
 	}
 
+	/**
+	 * Returns the S Data without copying it
+	 * 
+	 * @return read only view of the s data
+	 */
+	public ComplexArrayView getsDataView() {
+		return new ComplexArrayView(sData);
+	}
+
 	/**
 	 * Returns a list of S Data normalized to a given Resistance zo
 	 * 
@@ -478,6 +521,19 @@ public class RFData {
 		return RFData.z2s(zo, zData);
 	}
 
+	/**
+	 * Returns the features of the impedance data, they are extracted once and
+	 * shared by all users of the data
+	 * 
+	 * @return features
+	 */
+	public synchronized RFFeatures getFeatures() {
+		if (features == null) {
+			features = new RFFeatures(fData, zData);
+		}
+		return features;
+	}
+
 	/**
 	 * Returns a list of Y Data
 	 * 
@@ -534,10 +590,10 @@ public class RFData {
 	 *            impedance array in ohms
 	 * @return resistance array in ohms
 	 */
-	public static double[] z2Rs(Complex[] z) {
-		double[] res = new double[z.length];
-		for (int i = 0; i < z.length; i++) {
-			res[i] = z[i].re();
+	public static double[] z2Rs(ComplexArrayView z) {
+		double[] res = new double[z.length()];
+		for (int i = 0; i < z.length(); i++) {
+			res[i] = z.get(i).re();
 		}
 		return res;
 	}
@@ -549,10 +605,10 @@ public class RFData {
 	 *            admittance data
 	 * @return resistance array in ohms
 	 */
-	public static double[] y2Rp(Complex[] y) {
-		double[] res = new double[y.length];
-		for (int i = 0; i < y.length; i++) {
-			res[i] = 1.0 / y[i].re();
+	public static double[] y2Rp(ComplexArrayView y) {
+		double[] res = new double[y.length()];
+		for (int i = 0; i < y.length(); i++) {
+			res[i] = 1.0 / y.get(i).re();
 		}
 		return res;
 	}
@@ -566,11 +622,11 @@ public class RFData {
 	 *            freq data
 	 * @return inductance array in ohms
 	 */
-	public static double[] z2Ls(Complex[] z, double[] f) {
-		double[] w = RFData.f2w(f);
-		double[] res = new double[z.length];
-		for (int i = 0; i < z.length; i++) {
-			res[i] = z[i].im() / w[i];
+	public static double[] z2Ls(ComplexArrayView z, DoubleArrayView f) {
+		double[] res = new double[z.length()];
+		for (int i = 0; i < z.length(); i++) {
+			double w = 2.0 * Math.PI * f.get(i);
+			res[i] = z.get(i).im() / w;
 		}
 		return res;
 	}
@@ -584,11 +640,11 @@ public class RFData {
 	 *            freq data
 	 * @return inductance array in ohms
 	 */
-	public static double[] y2Lp(Complex[] y, double[] f) {
-		double[] w = RFData.f2w(f);
-		double[] res = new double[y.length];
-		for (int i = 0; i < y.length; i++) {
-			res[i] = -1 / (y[i].im() * w[i]);
+	public static double[] y2Lp(ComplexArrayView y, DoubleArrayView f) {
+		double[] res = new double[y.length()];
+		for (int i = 0; i < y.length(); i++) {
+			double w = 2.0 * Math.PI * f.get(i);
+			res[i] = -1 / (y.get(i).im() * w);
 		}
 		return res;
 	}
@@ -602,11 +658,11 @@ public class RFData {
 	 *            freq data
 	 * @return capacitance array in ohms
 	 */
-	public static double[] z2Cs(Complex[] z, double[] f) {
-		double[] w = RFData.f2w(f);
-		double[] res = new double[z.length];
-		for (int i = 0; i < z.length; i++) {
-			res[i] = -1 / (z[i].im() * w[i]);
+	public static double[] z2Cs(ComplexArrayView z, DoubleArrayView f) {
+		double[] res = new double[z.length()];
+		for (int i = 0; i < z.length(); i++) {
+			double w = 2.0 * Math.PI * f.get(i);
+			res[i] = -1 / (z.get(i).im() * w);
 		}
 		return res;
 	}
@@ -620,11 +676,11 @@ public class RFData {
 	 *            freq data
 	 * @return capacitance array in ohms
 	 */
-	public static double[] y2Cp(Complex[] y, double[] f) {
-		double[] w = RFData.f2w(f);
-		double[] res = new double[y.length];
-		for (int i = 0; i < y.length; i++) {
-			res[i] = y[i].im() / w[i];
+	public static double[] y2Cp(ComplexArrayView y, DoubleArrayView f) {
+		double[] res = new double[y.length()];
+		for (int i = 0; i < y.length(); i++) {
+			double w = 2.0 * Math.PI * f.get(i);
+			res[i] = y.get(i).im() / w;
 		}
 		return res;
 	}
@@ -0,0 +1,274 @@
+package ezrlc.RFData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ezrlc.util.Complex;
+
+/**
+ * Features of a measurement, extracted once per file: zero crossings of the
+ * impedance phase, extrema of |Z| and the self resonance with its quality
+ * factor. Phase crossings need the phase to pass a hysteresis band, so noise
+ * around a resistive phase does not count as resonance.
+ * 
+ * @author noah
+ *
+ */
+public class RFFeatures {
+
+	// ================================================================================
+	// Datatypes
+	// ================================================================================
+	/**
+	 * Type of a resonance
+	 */
+	public enum ResonanceType {
+		/**
+		 * phase rises through zero, |Z| has a minimum
+		 */
+		SERIES,
+		/**
+		 * phase falls through zero, |Z| has a maximum
+		 */
+		PARALLEL
+	}
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	/**
+	 * Half width of the phase hysteresis band in rad
+	 */
+	private static final double hysteresis = Math.toRadians(5.0);
+
+	// Phase zero crossings in Hz, ascending
+	private double[] crossings;
+	private ResonanceType[] crossingTypes;
+	private double[] crossingQ;
+
+	// Extrema of |Z|
+	private double zAbsMaxF;
+	private double zAbsMax;
+	private double zAbsMinF;
+	private double zAbsMin;
+
+	// ================================================================================
+	// Constructors
+	// ================================================================================
+	/**
+	 * Extracts the features of the given impedance data
+	 * 
+	 * @param f
+	 *            frequency points in Hz, ascending
+	 * @param z
+	 *            impedance data
+	 */
+	public RFFeatures(double[] f, Complex[] z) {
+		double[] abs = new double[z.length];
+		double[] phase = new double[z.length];
+		for (int i = 0; i < z.length; i++) {
+			abs[i] = z[i].abs();
+			phase[i] = Math.atan2(z[i].im(), z[i].re());
+		}
+		findCrossings(f, phase);
+		findExtrema(f, abs);
+	}
+
+	// ================================================================================
+	// Private Functions
+	// ================================================================================
+	/**
+	 * Finds the phase zero crossings. A crossing is taken if the phase leaves
+	 * the hysteresis band on the other side it entered, its frequency is
+	 * interpolated log linear at the last sign change and its Q follows from
+	 * the phase slope, Q = 1/2 * |dphi / dln(f)|.
+	 * 
+	 * @param f
+	 *            frequency points in Hz
+	 * @param phase
+	 *            phase in rad
+	 */
+	private void findCrossings(double[] f, double[] phase) {
+		List<double[]> found = new ArrayList<double[]>();
+		int side = 0;
+		int leave = -1;
+		for (int i = 0; i < phase.length; i++) {
+			int s = (phase[i] > hysteresis) ? 1 : ((phase[i] < -hysteresis) ? -1 : 0);
+			if (s == 0 || f[i] <= 0)
+				continue;
+			if (side != 0 && s != side && leave >= 0) {
+				// last sign change between leave and i
+				int k = i;
+				while (k > leave + 1 && Math.signum(phase[k - 1]) == Math.signum(phase[i])) {
+					k--;
+				}
+				double x0 = Math.log(f[k - 1]);
+				double x1 = Math.log(f[k]);
+				double t = phase[k - 1] / (phase[k - 1] - phase[k]);
+				double fc = Math.exp(x0 + t * (x1 - x0));
+				double slope = (phase[i] - phase[leave]) / (Math.log(f[i]) - Math.log(f[leave]));
+				found.add(new double[] { fc, s, 0.5 * Math.abs(slope) });
+			}
+			side = s;
+			leave = i;
+		}
+		crossings = new double[found.size()];
+		crossingTypes = new ResonanceType[found.size()];
+		crossingQ = new double[found.size()];
+		for (int i = 0; i < found.size(); i++) {
+			crossings[i] = found.get(i)[0];
+			crossingTypes[i] = (found.get(i)[1] > 0) ? ResonanceType.SERIES : ResonanceType.PARALLEL;
+			crossingQ[i] = found.get(i)[2];
+		}
+	}
+
+	/**
+	 * Finds the global extrema of |Z|, interpolated by a parabola through the
+	 * neighbors in log log scale
+	 * 
+	 * @param f
+	 *            frequency points in Hz
+	 * @param abs
+	 *            |Z|
+	 */
+	private void findExtrema(double[] f, double[] abs) {
+		int iMax = 0;
+		int iMin = 0;
+		for (int i = 1; i < abs.length; i++) {
+			if (abs[i] > abs[iMax])
+				iMax = i;
+			if (abs[i] < abs[iMin])
+				iMin = i;
+		}
+		double[] max = parabola(f, abs, iMax);
+		double[] min = parabola(f, abs, iMin);
+		zAbsMaxF = max[0];
+		zAbsMax = max[1];
+		zAbsMinF = min[0];
+		zAbsMin = min[1];
+	}
+
+	/**
+	 * Interpolates an extremum by a parabola through the point and its
+	 * neighbors in log log scale
+	 * 
+	 * @param f
+	 *            frequency points in Hz
+	 * @param abs
+	 *            |Z|
+	 * @param i
+	 *            index of the extremum
+	 * @return {frequency, value}, the point itself at the edges
+	 */
+	private static double[] parabola(double[] f, double[] abs, int i) {
+		if (i == 0 || i == abs.length - 1 || f[i - 1] <= 0 || abs[i - 1] <= 0 || abs[i] <= 0 || abs[i + 1] <= 0) {
+			return new double[] { f[i], abs[i] };
+		}
+		double x0 = Math.log(f[i - 1]), x1 = Math.log(f[i]), x2 = Math.log(f[i + 1]);
+		double y0 = Math.log(abs[i - 1]), y1 = Math.log(abs[i]), y2 = Math.log(abs[i + 1]);
+		double d01 = (y1 - y0) / (x1 - x0);
+		double d12 = (y2 - y1) / (x2 - x1);
+		double a = (d12 - d01) / (x2 - x0);
+		if (a == 0 || Double.isNaN(a)) {
+			return new double[] { f[i], abs[i] };
+		}
+		// vertex of y = y1 + b (x - x1) + a (x - x1)^2
+		double b = d01 + a * (x1 - x0);
+		double dx = -b / (2 * a);
+		if (Math.abs(dx) > Math.max(x1 - x0, x2 - x1)) {
+			return new double[] { f[i], abs[i] };
+		}
+		return new double[] { Math.exp(x1 + dx), Math.exp(y1 + b * dx + a * dx * dx) };
+	}
+
+	// ================================================================================
+	// Getters
+	// ================================================================================
+	/**
+	 * Returns the phase zero crossings
+	 * 
+	 * @return frequencies in Hz, ascending
+	 */
+	public double[] getPhaseCrossings() {
+		return crossings.clone();
+	}
+
+	/**
+	 * Returns the resonance type of the phase zero crossings
+	 * 
+	 * @return resonance types
+	 */
+	public ResonanceType[] getPhaseCrossingTypes() {
+		return crossingTypes.clone();
+	}
+
+	/**
+	 * Returns the self resonant frequency, the first phase zero crossing
+	 * 
+	 * @return frequency in Hz, NaN if there is none
+	 */
+	public double getSrf() {
+		return (crossings.length > 0) ? crossings[0] : Double.NaN;
+	}
+
+	/**
+	 * Returns the type of the self resonance
+	 * 
+	 * @return resonance type, null if there is none
+	 */
+	public ResonanceType getSrfType() {
+		return (crossings.length > 0) ? crossingTypes[0] : null;
+	}
+
+	/**
+	 * Returns the quality factor of the self resonance
+	 * 
+	 * @return Q, NaN if there is no resonance
+	 */
+	public double getQ() {
+		return (crossings.length > 0) ? crossingQ[0] : Double.NaN;
+	}
+
+	public double getZAbsMaxF() {
+		return zAbsMaxF;
+	}
+
+	public double getZAbsMax() {
+		return zAbsMax;
+	}
+
+	public double getZAbsMinF() {
+		return zAbsMinF;
+	}
+
+	public double getZAbsMin() {
+		return zAbsMin;
+	}
+
+	// ================================================================================
+	// Public Static functions
+	// ================================================================================
+	/**
+	 * Returns the index of the point closest to the given value
+	 * 
+	 * @param x
+	 *            ascending vector
+	 * @param v
+	 *            value
+	 * @return index
+	 */
+	public static int nearestIndex(double[] x, double v) {
+		int lo = 0;
+		int hi = x.length - 1;
+		while (hi - lo > 1) {
+			int mid = (lo + hi) >>> 1;
+			if (x[mid] <= v) {
+				lo = mid;
+			} else {
+				hi = mid;
+			}
+		}
+		return (Math.abs(x[hi] - v) < Math.abs(x[lo] - v)) ? hi : lo;
+	}
+
+}
@@ -4,7 +4,6 @@ import java.awt.Color;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
-import java.util.Observable;
 
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
@@ -14,6 +13,9 @@ import javax.swing.border.LineBorder;
 import ezrlc.Controller.Controller;
 import ezrlc.Model.Model;
 import ezrlc.Model.Model.UpdateEvent;
+import ezrlc.Model.ModelEvent;
+import ezrlc.Model.ModelEventBus;
+import ezrlc.Model.ModelListener;
 import ezrlc.Model.RectPlotNewMeasurement;
 import ezrlc.Plot.RectPlot.Axis.Scale;
 import ezrlc.Plot.RectPlot.RectPlotSettings;
@@ -28,7 +30,7 @@ import ezrlc.util.UIUtil;
  * @author noah
  *
  */
-public class IGAssistPanel extends JPanel {
+public class IGAssistPanel extends JPanel implements ModelListener {
 
 	// ================================================================================
 	// Settings
@@ -66,6 +68,7 @@ public class IGAssistPanel extends JPanel {
 		GridBagLayout layout = new GridBagLayout();
 		this.setLayout(layout);
 		this.setBackground(Color.WHITE);
+		controller.addModelListener(this, ModelEventBus.types(UpdateEvent.MANUAL, UpdateEvent.FILE));
 	}
 
 	// ================================================================================
@@ -151,21 +154,20 @@ public class IGAssistPanel extends JPanel {
 	}
 
 	/**
-	 * Gets called by model if update event happens
+	 * Gets called by model if a MANUAL or FILE event happens
 	 * 
-	 * @param o
+	 * @param model
 	 *            model
-	 * @param arg
-	 *            arguments
+	 * @param event
+	 *            model event
 	 */
-	public void update(Observable o, Object arg) {
-		if (arg == UpdateEvent.MANUAL || arg == UpdateEvent.FILE) {
-			// // repaint all plots
-			for (int i = 0; i < 8; i++) {
-				plots[i].update(o, arg);
-			}
-			setPlotSettings((Model) o);
+	@Override
+	public void modelChanged(Model model, ModelEvent event) {
+		// // repaint all plots
+		for (int i = 0; i < 8; i++) {
+			plots[i].update(model, event);
 		}
+		setPlotSettings(model);
 	}
 
 }
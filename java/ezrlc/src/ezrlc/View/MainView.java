@@ -3,8 +3,6 @@ package ezrlc.View;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
-import java.util.Observable;
-import java.util.Observer;
 
 //import com.apple.eawt.Application;
 
@@ -25,7 +23,7 @@ import ezrlc.util.UIUtil;
  * @author noah
  *
  */
-public class MainView extends JFrame implements Observer {
+public class MainView extends JFrame {
 	private static final long serialVersionUID = 1L;
 	// ================================================================================
 	// Local Variables
@@ -123,21 +121,6 @@ public class MainView extends JFrame implements Observer {
 
 	}
 
-	/**
-	 * Gets called if model notifies Observers
-	 * 
-	 * @param o
-	 *            model object
-	 * @param arg
-	 *            arguments
-	 */
-	@Override
-	public void update(Observable o, Object arg) {
-		workPanel.update(o, arg);
-		navPanel.update(o, arg);
-		revalidate();
-	}
-
 	/**
 	 * delete Figure at WorkPanel
 	 * 
@@ -8,12 +8,12 @@ import java.awt.GridLayout;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.Observable;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.Timer;
 import javax.swing.border.LineBorder;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
@@ -39,6 +39,8 @@ public class ModelLabelPanel extends JPanel implements ActionListener, DocumentL
 	private Controller controller;
 	private boolean lockUpdate = false;
 	private boolean modelPanelBuilt = false;
+	// edits are refused until the optimized parameters arrive
+	private boolean optimizing = false;
 
 	private JEngineerField txtC0;
 	private JEngineerField txtR0;
@@ -50,6 +52,17 @@ public class ModelLabelPanel extends JPanel implements ActionListener, DocumentL
 
 	private double[] parameters;
 
+	// Edits are published to the model at most once per display frame, only
+	// the latest parameters of a burst of edits are sent
+	private static final int tuningInterval = 16;
+	private double[] pendingParameters = null;
+	private Timer tuningTimer = new Timer(tuningInterval, new ActionListener() {
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			publishParameters();
+		}
+	});
+
 	JLabel title;
 
 	private JButton btnDelete;
@@ -293,6 +306,14 @@ public class ModelLabelPanel extends JPanel implements ActionListener, DocumentL
 			txtC0.setValue(p[5]);
 		if (c1EditableLUT[ordinal])
 			txtC1.setValue(p[6]);
+	}
+
+	/**
+	 * Enables the buttons and resets the title after creating or optimizing
+	 * the model
+	 */
+	private void updateStatus() {
+		optimizing = false;
 		btnOptimize.setEnabled(true);
 		btnDelete.setEnabled(true);
 		title.setText("<html><B>Model " + this.eqcID + "</B></html>");
@@ -322,17 +343,33 @@ public class ModelLabelPanel extends JPanel implements ActionListener, DocumentL
 	}
 
 	/**
-	 * parses values and calls controller to do update
+	 * parses values and starts the tuning timer, which publishes them to the
+	 * controller
 	 */
 	private void tuner() {
-		if (lockUpdate == false) {
-			lockUpdate = true;
+		if (lockUpdate == false && optimizing == false) {
 			this.parseValues();
-			controller.updateEqcParams(eqcID, parameters);
-			lockUpdate = false;
+			pendingParameters = parameters;
+			if (tuningTimer.isRunning() == false) {
+				tuningTimer.setRepeats(false);
+				tuningTimer.start();
+			}
 		}
 	}
 
+	/**
+	 * Calls controller to do update with the latest parsed values
+	 */
+	private void publishParameters() {
+		if (pendingParameters == null)
+			return;
+		double[] p = pendingParameters;
+		pendingParameters = null;
+		lockUpdate = true;
+		controller.updateEqcParams(eqcID, p);
+		lockUpdate = false;
+	}
+
 	// ================================================================================
 	// Public Functions
 	// ================================================================================
@@ -343,11 +380,17 @@ public class ModelLabelPanel extends JPanel implements ActionListener, DocumentL
 	@Override
 	public void actionPerformed(ActionEvent e) {
 		if (e.getSource() == btnDelete) {
+			tuningTimer.stop();
+			pendingParameters = null;
 			if (modelPanelBuilt == true)
 				controller.removeEqCircuit(eqcID);
 			else
 				controller.killWorker(this.eqcID);
 		} else if (e.getSource() == btnOptimize) {
+			// optimize from the values entered last
+			tuningTimer.stop();
+			publishParameters();
+			optimizing = true;
 			btnOptimize.setEnabled(false);
 			btnDelete.setEnabled(false);
 			title.setText("Optimizing Model...");
@@ -357,11 +400,19 @@ public class ModelLabelPanel extends JPanel implements ActionListener, DocumentL
 		}
 	}
 
-	public void update(Observable o, Object arg) {
-		Model m = (Model) o;
+	/**
+	 * Shows the parameters of the circuit in the model
+	 * 
+	 * @param m
+	 *            model
+	 */
+	public void update(Model m) {
 		if (lockUpdate == false && modelPanelBuilt) {
 			lockUpdate = true;
-			updateParams(m.getEquivalentCircuit(this.eqcID));
+			// edits not yet published are not overwritten
+			if (pendingParameters == null)
+				updateParams(m.getEquivalentCircuit(this.eqcID));
+			updateStatus();
 			updateUI();
 			lockUpdate = false;
 		}
@@ -371,6 +422,15 @@ public class ModelLabelPanel extends JPanel implements ActionListener, DocumentL
 		return this.eqcID;
 	}
 
+	/**
+	 * Checks if the panel shows a calculated model
+	 * 
+	 * @return false while the model is calculated
+	 */
+	public boolean isBuilt() {
+		return modelPanelBuilt;
+	}
+
 	@Override
 	public void insertUpdate(DocumentEvent e) {
 		tuner();
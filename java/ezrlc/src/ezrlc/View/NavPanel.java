@@ -12,8 +12,6 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Observable;
-import java.util.Observer;
 
 import javax.swing.Box;
 import javax.swing.JButton;
@@ -27,6 +25,9 @@ import javax.swing.border.TitledBorder;
 import ezrlc.Controller.Controller;
 import ezrlc.Model.Model;
 import ezrlc.Model.Model.UpdateEvent;
+import ezrlc.Model.ModelEvent;
+import ezrlc.Model.ModelEventBus;
+import ezrlc.Model.ModelListener;
 import ezrlc.View.WorkPanel.ViewType;
 
 /**
@@ -35,7 +36,7 @@ import ezrlc.View.WorkPanel.ViewType;
  * @author noah
  *
  */
-public class NavPanel extends JPanel implements ActionListener, Observer {
+public class NavPanel extends JPanel implements ActionListener, ModelListener {
 	private static final long serialVersionUID = 1L;
 
 	// ================================================================================
@@ -69,6 +70,9 @@ public class NavPanel extends JPanel implements ActionListener, Observer {
 		this.fileChooser = new FileChooser(controller);
 		this.graphWindow = new GraphWindow(controller);
 		this.newModelWindow = new NewModelWindow(controller);
+		controller.addModelListener(this,
+				ModelEventBus.types(UpdateEvent.NEW_EQC, UpdateEvent.REMOVE_EQC, UpdateEvent.CHANGE_EQC,
+						UpdateEvent.WORKER_FAILED));
 	}
 
 	// ================================================================================
@@ -401,10 +405,11 @@ public class NavPanel extends JPanel implements ActionListener, Observer {
 	/**
 	 * update NavPanel
 	 */
-	public void update(Observable o, Object arg) {
-		Model model = (Model) o;
+	@Override
+	public void modelChanged(Model model, ModelEvent event) {
+		UpdateEvent arg = event.getType();
 		if (arg == UpdateEvent.NEW_EQC) {
-			updateNewModelLabel((Model) o);
+			updateNewModelLabel(model);
 		}
 		if (arg == UpdateEvent.REMOVE_EQC) {
 			// if model label panel doesnt exist, remove it
@@ -418,12 +423,26 @@ public class NavPanel extends JPanel implements ActionListener, Observer {
 			btnNewModel.setEnabled(true);
 			updateUI();
 		}
-		if (arg == UpdateEvent.CHANGE_EQC || arg == UpdateEvent.NEW_EQC) {
+		if (arg == UpdateEvent.WORKER_FAILED && event.getEqcID() < 0) {
+			// drop the label of the model that could not be calculated
+			for (Iterator<ModelLabelPanel> iter = modelLabelPanels.iterator(); iter.hasNext();) {
+				ModelLabelPanel i = iter.next();
+				if (i.isBuilt() == false) {
+					pnlModel.remove(i);
+					iter.remove();
+				}
+			}
+			btnNewModel.setEnabled(true);
+			updateUI();
+		}
+		if (arg == UpdateEvent.CHANGE_EQC || arg == UpdateEvent.NEW_EQC || arg == UpdateEvent.WORKER_FAILED) {
+			// only the panel of the changed circuit
 			for (ModelLabelPanel modelLabelPanel : modelLabelPanels) {
-				if (modelLabelPanel != null)
-					modelLabelPanel.update(o, arg);
+				if (modelLabelPanel != null && modelLabelPanel.getID() == event.getEqcID())
+					modelLabelPanel.update(model);
 			}
 		}
+		revalidate();
 	}
 
 	/**
@@ -3,8 +3,6 @@ package ezrlc.View;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.GridLayout;
-import java.util.Observable;
-import java.util.Observer;
 
 import javax.swing.JPanel;
 import javax.swing.border.LineBorder;
@@ -19,7 +17,7 @@ import ezrlc.Plot.Figure.ENPlotType;
  * @author noah
  *
  */
-public class WorkPanel extends JPanel implements Observer {
+public class WorkPanel extends JPanel {
 	private static final long serialVersionUID = 1L;
 
 	// ================================================================================
@@ -117,39 +115,14 @@ public class WorkPanel extends JPanel implements Observer {
 			controller.setNewGraphButtonEnabled(false);
 			break;
 		case SPLIT:
+			// no place for the figure
+			controller.removeModelListener(f);
 			break;
 		}
 
 		this.setView(ViewType.FIGURE);
 	}
 
-	/**
-	 * Updates the containing figures
-	 * 
-	 * @param o
-	 *            model
-	 * @param arg
-	 *            arguments
-	 */
-	@Override
-	public void update(Observable o, Object arg) {
-		try {
-			fullFigure.update(o, arg);
-		} catch (Exception e) {
-		}
-
-		try {
-			topFigure.update(o, arg);
-		} catch (Exception e) {
-		}
-
-		try {
-			bottomFigure.update(o, arg);
-		} catch (Exception e) {
-		}
-		pnlIGAssist.update(o, arg);
-	}
-
 	/**
 	 * Delete a figure
 	 * 
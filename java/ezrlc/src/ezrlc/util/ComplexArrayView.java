@@ -0,0 +1,106 @@
+package ezrlc.util;
+
+import java.util.Arrays;
+
+/**
+ * Read only view of a complex array, or of a range of it. Complex values can
+ * not be modified, so sharing the array with its owner is safe and getters
+ * can hand out their data without copying it. A caller that needs to modify
+ * the data takes a copy with toArray().
+ * 
+ * @author noah
+ *
+ */
+public final class ComplexArrayView {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private final Complex[] data;
+	private final int offset;
+	private final int length;
+
+	// ================================================================================
+	// Constructors
+	// ================================================================================
+	/**
+	 * Creates a view of the whole array
+	 * 
+	 * @param data
+	 *            array, not copied
+	 */
+	public ComplexArrayView(Complex[] data) {
+		this(data, 0, data.length);
+	}
+
+	/**
+	 * Creates a view of a range of the array
+	 * 
+	 * @param data
+	 *            array, not copied
+	 * @param offset
+	 *            index of the first element
+	 * @param length
+	 *            number of elements
+	 */
+	public ComplexArrayView(Complex[] data, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > data.length) {
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + data.length);
+		}
+		this.data = data;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Returns an element
+	 * 
+	 * @param i
+	 *            index in the view
+	 * @return element
+	 */
+	public Complex get(int i) {
+		if (i < 0 || i >= length) {
+			throw new IndexOutOfBoundsException("index " + i + ", length " + length);
+		}
+		return data[offset + i];
+	}
+
+	/**
+	 * Returns the number of elements
+	 * 
+	 * @return length
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Returns a view of a range of this view, sharing the storage
+	 * 
+	 * @param from
+	 *            first index, inclusive
+	 * @param to
+	 *            last index, exclusive
+	 * @return sub view
+	 */
+	public ComplexArrayView subView(int from, int to) {
+		if (from < 0 || to > length || from > to) {
+			throw new IndexOutOfBoundsException("from " + from + ", to " + to + ", length " + length);
+		}
+		return new ComplexArrayView(data, offset + from, to - from);
+	}
+
+	/**
+	 * Returns a copy of the elements, the complex values are shared
+	 * 
+	 * @return new array
+	 */
+	public Complex[] toArray() {
+		return Arrays.copyOfRange(data, offset, offset + length);
+	}
+
+}
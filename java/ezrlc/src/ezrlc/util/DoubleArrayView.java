@@ -0,0 +1,134 @@
+package ezrlc.util;
+
+import java.util.Arrays;
+
+/**
+ * Read only view of a double array, or of a range of it. The storage is
+ * shared with the owner of the array, so getters can hand out their data
+ * without copying it. A caller that needs to modify the data takes a copy
+ * with toArray().
+ * 
+ * @author noah
+ *
+ */
+public final class DoubleArrayView {
+
+	// ================================================================================
+	// Private Data
+	// ================================================================================
+	private final double[] data;
+	private final int offset;
+	private final int length;
+
+	// ================================================================================
+	// Constructors
+	// ================================================================================
+	/**
+	 * Creates a view of the whole array
+	 * 
+	 * @param data
+	 *            array, not copied
+	 */
+	public DoubleArrayView(double[] data) {
+		this(data, 0, data.length);
+	}
+
+	/**
+	 * Creates a view of a range of the array
+	 * 
+	 * @param data
+	 *            array, not copied
+	 * @param offset
+	 *            index of the first element
+	 * @param length
+	 *            number of elements
+	 */
+	public DoubleArrayView(double[] data, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > data.length) {
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + data.length);
+		}
+		this.data = data;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	// ================================================================================
+	// Public Functions
+	// ================================================================================
+	/**
+	 * Returns an element
+	 * 
+	 * @param i
+	 *            index in the view
+	 * @return element
+	 */
+	public double get(int i) {
+		if (i < 0 || i >= length) {
+			throw new IndexOutOfBoundsException("index " + i + ", length " + length);
+		}
+		return data[offset + i];
+	}
+
+	/**
+	 * Returns the number of elements
+	 * 
+	 * @return length
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Returns a view of a range of this view, sharing the storage
+	 * 
+	 * @param from
+	 *            first index, inclusive
+	 * @param to
+	 *            last index, exclusive
+	 * @return sub view
+	 */
+	public DoubleArrayView subView(int from, int to) {
+		if (from < 0 || to > length || from > to) {
+			throw new IndexOutOfBoundsException("from " + from + ", to " + to + ", length " + length);
+		}
+		return new DoubleArrayView(data, offset + from, to - from);
+	}
+
+	/**
+	 * Returns a copy of the elements
+	 * 
+	 * @return new array
+	 */
+	public double[] toArray() {
+		return Arrays.copyOfRange(data, offset, offset + length);
+	}
+
+	/**
+	 * Returns the maximum value, as MathUtil.getMax
+	 * 
+	 * @return maximum, -Double.MAX_VALUE if empty
+	 */
+	public double getMax() {
+		double res = -Double.MAX_VALUE;
+		for (int i = offset; i < offset + length; i++) {
+			if (data[i] > res)
+				res = data[i];
+		}
+		return res;
+	}
+
+	/**
+	 * Returns the minimum value, as MathUtil.getMin
+	 * 
+	 * @return minimum, Double.MAX_VALUE if empty
+	 */
+	public double getMin() {
+		double res = Double.MAX_VALUE;
+		for (int i = offset; i < offset + length; i++) {
+			if (data[i] < res)
+				res = data[i];
+		}
+		return res;
+	}
+
+}
@@ -0,0 +1,146 @@
+package ezrlc.Model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ezrlc.Model.Model.UpdateEvent;
+
+/**
+ * Filtering and delivery of the model event bus
+ * 
+ * @author noah
+ *
+ */
+public class ModelEventBusTest {
+
+	private Model model;
+	private ModelEventBus bus;
+
+	/**
+	 * Listener recording its events and the threads they arrived on
+	 */
+	private static class Recorder implements ModelListener {
+		final List<ModelEvent> events = new ArrayList<ModelEvent>();
+		boolean onEdt = true;
+		Model model;
+
+		@Override
+		public void modelChanged(Model m, ModelEvent event) {
+			events.add(event);
+			onEdt &= SwingUtilities.isEventDispatchThread();
+			model = m;
+		}
+	}
+
+	/**
+	 * Publishes the events on the event dispatch thread, where they are
+	 * delivered before publish returns
+	 */
+	private void publishOnEdt(final ModelEvent... events) throws Exception {
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				for (ModelEvent e : events) {
+					bus.publish(e);
+				}
+			}
+		});
+	}
+
+	@Before
+	public void setUp() {
+		model = new Model();
+		bus = new ModelEventBus(model);
+	}
+
+	@Test
+	public void typeFilterSelectsEvents() throws Exception {
+		Recorder eqc = new Recorder();
+		Recorder file = new Recorder();
+		bus.subscribe(eqc, ModelEventBus.types(UpdateEvent.NEW_EQC, UpdateEvent.CHANGE_EQC));
+		bus.subscribe(file, ModelEventBus.types(UpdateEvent.FILE));
+
+		publishOnEdt(new ModelEvent(UpdateEvent.NEW_EQC, 0), new ModelEvent(UpdateEvent.FILE),
+				new ModelEvent(UpdateEvent.CHANGE_EQC, 0), new ModelEvent(UpdateEvent.DATASET, -1, new int[] { 1 }));
+
+		assertEquals(2, eqc.events.size());
+		assertEquals(UpdateEvent.NEW_EQC, eqc.events.get(0).getType());
+		assertEquals(UpdateEvent.CHANGE_EQC, eqc.events.get(1).getType());
+		assertEquals(1, file.events.size());
+		assertSame(model, eqc.model);
+	}
+
+	@Test
+	public void dataSetFilterSelectsEvents() throws Exception {
+		Recorder r = new Recorder();
+		bus.subscribe(r, new ModelEventFilter() {
+			@Override
+			public boolean accept(ModelEvent event) {
+				return event.getType() == UpdateEvent.DATASET && event.concernsAnyDataSet(new int[] { 2, 5 });
+			}
+		});
+
+		publishOnEdt(new ModelEvent(UpdateEvent.DATASET, -1, new int[] { 1, 3 }),
+				new ModelEvent(UpdateEvent.DATASET, -1, new int[] { 3, 5 }),
+				new ModelEvent(UpdateEvent.DATASET, -1, null));
+
+		// the event naming dataset 5 and the one for all datasets
+		assertEquals(2, r.events.size());
+		assertTrue(r.events.get(0).concernsDataSet(5));
+		assertFalse(r.events.get(0).concernsDataSet(2));
+		assertTrue(r.events.get(1).concernsDataSet(2));
+	}
+
+	@Test
+	public void unsubscribedListenerIsNotCalled() throws Exception {
+		Recorder r = new Recorder();
+		bus.subscribe(r, ModelEventBus.types(UpdateEvent.MANUAL));
+		publishOnEdt(new ModelEvent(UpdateEvent.MANUAL));
+		bus.unsubscribe(r);
+		publishOnEdt(new ModelEvent(UpdateEvent.MANUAL));
+		assertEquals(1, r.events.size());
+	}
+
+	@Test
+	public void eventsOfOtherThreadsArriveOnTheEdt() throws Exception {
+		Recorder r = new Recorder();
+		bus.subscribe(r, ModelEventBus.types(UpdateEvent.CHANGE_EQC));
+		bus.publish(new ModelEvent(UpdateEvent.CHANGE_EQC, 3));
+		// the event is queued before this empty task
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+			}
+		});
+		assertEquals(1, r.events.size());
+		assertEquals(3, r.events.get(0).getEqcID());
+		assertTrue(r.onEdt);
+	}
+
+	@Test
+	public void subscriptionDuringDispatchStartsWithTheNextEvent() throws Exception {
+		final Recorder late = new Recorder();
+		bus.subscribe(new ModelListener() {
+			@Override
+			public void modelChanged(Model m, ModelEvent event) {
+				bus.subscribe(late, ModelEventBus.types(UpdateEvent.FILE));
+			}
+		}, ModelEventBus.types(UpdateEvent.FILE));
+
+		publishOnEdt(new ModelEvent(UpdateEvent.FILE));
+		assertEquals(0, late.events.size());
+		publishOnEdt(new ModelEvent(UpdateEvent.FILE));
+		assertEquals(1, late.events.size());
+	}
+
+}
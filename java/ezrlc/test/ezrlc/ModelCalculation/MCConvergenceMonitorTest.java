@@ -0,0 +1,88 @@
+package ezrlc.ModelCalculation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.math3.optim.PointValuePair;
+import org.junit.Test;
+
+import ezrlc.ModelCalculation.MCFitResult.StopReason;
+
+/**
+ * Stop decisions of the convergence monitor, fed without an optimizer
+ * 
+ * @author noah
+ *
+ */
+public class MCConvergenceMonitorTest {
+
+	private static PointValuePair pair(double value) {
+		return new PointValuePair(new double[] { value }, value);
+	}
+
+	/**
+	 * Feeds the best value of every iteration, returns the iteration the
+	 * monitor stopped at, -1 if it did not stop
+	 */
+	private static int feed(MCConvergenceMonitor monitor, double... values) {
+		for (int i = 0; i < values.length; i++) {
+			PointValuePair previous = pair((i > 0) ? values[i - 1] : 10.0);
+			if (monitor.converged(i, previous, pair(values[i]))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Test
+	public void stopsWhenTheWindowStalls() {
+		MCConvergenceMonitor monitor = new MCConvergenceMonitor(1e-12, 1e-15, 3, 0.01);
+		assertEquals(3, feed(monitor, 1.0, 0.999, 0.998, 0.997, 0.996));
+		assertEquals(StopReason.STALLED, monitor.getStopReason());
+	}
+
+	@Test
+	public void keepsRunningWhileTheErrorImproves() {
+		MCConvergenceMonitor monitor = new MCConvergenceMonitor(1e-12, 1e-15, 3, 0.01);
+		assertEquals(-1, feed(monitor, 1.0, 0.5, 0.25, 0.125, 0.0625, 0.03125));
+		assertNull(monitor.getStopReason());
+		assertEquals(6, monitor.getIterations());
+	}
+
+	@Test
+	public void windowOfNaNErrorsStalls() {
+		MCConvergenceMonitor monitor = new MCConvergenceMonitor(1e-12, 1e-15, 2, 0.01);
+		assertEquals(2, feed(monitor, Double.NaN, Double.NaN, Double.NaN));
+		assertEquals(StopReason.STALLED, monitor.getStopReason());
+	}
+
+	@Test
+	public void thresholdCheckConvergesWithoutWindow() {
+		MCConvergenceMonitor monitor = new MCConvergenceMonitor(1e-12, 1e-15, 0, 0.01);
+		assertEquals(2, feed(monitor, 1.0, 0.999, 0.999));
+		assertEquals(StopReason.CONVERGED, monitor.getStopReason());
+	}
+
+	@Test
+	public void countsEveryIterationOnce() {
+		MCConvergenceMonitor monitor = new MCConvergenceMonitor(1e-12, 1e-15, 3, 0.01);
+		// the optimizer checks every vertex, the best one first
+		assertFalse(monitor.converged(0, pair(3.0), pair(1.0)));
+		assertFalse(monitor.converged(0, pair(4.0), pair(2.0)));
+		assertFalse(monitor.converged(0, pair(5.0), pair(3.0)));
+		assertEquals(1, monitor.getIterations());
+	}
+
+	@Test
+	public void resetStartsANewWindow() {
+		MCConvergenceMonitor monitor = new MCConvergenceMonitor(1e-12, 1e-15, 3, 0.01);
+		assertTrue(feed(monitor, 1.0, 1.0 - 1e-3, 1.0 - 2e-3, 1.0 - 3e-3) >= 0);
+		monitor.reset();
+		assertNull(monitor.getStopReason());
+		assertEquals(0, monitor.getIterations());
+		assertEquals(-1, feed(monitor, 1.0, 0.5, 0.25));
+	}
+
+}
@@ -0,0 +1,183 @@
+package ezrlc.ModelCalculation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ezrlc.ModelCalculation.MCEqCircuit.CircuitType;
+import ezrlc.ModelCalculation.MCSearchSpace.ParameterSpace;
+import ezrlc.RFData.RFData;
+
+/**
+ * Keys and hits of the fit cache
+ * 
+ * @author noah
+ *
+ */
+public class MCFitCacheTest {
+
+	private static final double[] PARAMS = { 100.0, 0, 0, 0, 1e-6, 1e-12, 0 };
+
+	private RFData data;
+
+	/**
+	 * Writes an impedance file of a series R-L and parses it
+	 */
+	private static RFData measurement(double r) throws IOException {
+		File file = File.createTempFile("ezrlc", ".s1p");
+		file.deleteOnExit();
+		try (PrintWriter pw = new PrintWriter(file)) {
+			pw.println("# HZ Z RI R 50");
+			for (int i = 1; i <= 20; i++) {
+				double f = i * 1e6;
+				pw.println(f + " " + r + " " + (2 * Math.PI * f * 1e-6));
+			}
+		}
+		RFData data = new RFData(file);
+		data.parse();
+		return data;
+	}
+
+	private static MCEqCircuit fitted() {
+		MCEqCircuit eqc = new MCEqCircuit(CircuitType.MODEL4, PARAMS);
+		eqc.setZ0(50.0);
+		return eqc;
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		data = measurement(100.0);
+	}
+
+	@Test
+	public void hitReturnsACopyOfTheFit() {
+		MCFitCache cache = new MCFitCache(4);
+		MCOptions ops = new MCOptions();
+		cache.put(data, ops, fitted());
+
+		MCEqCircuit first = cache.get(data, new MCOptions());
+		assertNotNull(first);
+		assertEquals(CircuitType.MODEL4, first.getCircuitType());
+		assertArrayEquals(PARAMS, first.getParameters(), 0.0);
+		assertEquals(50.0, first.getZ0(), 0.0);
+		assertEquals(20, first.getWSize());
+
+		// editing one entry does not change the next hit
+		first.setParameter(0, 1.0);
+		MCEqCircuit second = cache.get(data, ops);
+		assertNotSame(first, second);
+		assertArrayEquals(PARAMS, second.getParameters(), 0.0);
+	}
+
+	@Test
+	public void otherDataMisses() throws IOException {
+		MCFitCache cache = new MCFitCache(4);
+		cache.put(data, new MCOptions(), fitted());
+		assertNull(cache.get(measurement(101.0), new MCOptions()));
+	}
+
+	@Test
+	public void everyOptionOfTheFitIsPartOfTheKey() {
+		Map<String, Consumer<MCOptions>> changes = new LinkedHashMap<String, Consumer<MCOptions>>();
+		changes.put("fMin", ops -> {
+			ops.fMinAuto = false;
+			ops.fMin = 2e6;
+		});
+		// the worker reads the limits even in auto mode
+		changes.put("nElementsMin", ops -> ops.nElementsMin = 3);
+		changes.put("nElementsMax", ops -> ops.nElementsMax = 2);
+		changes.put("fixed parameter", ops -> {
+			ops.paramsAuto[0] = false;
+			ops.params[0] = 100.0;
+		});
+		changes.put("boundedFit", ops -> ops.boundedFit = true);
+		changes.put("modelID", ops -> {
+			ops.modelAutoSelect = false;
+			ops.modelID = 4;
+		});
+		changes.put("exhaustive", ops -> ops.exhaustive = true);
+		changes.put("skinAutoSelect", ops -> ops.skinAutoSelect = !ops.skinAutoSelect);
+		changes.put("fitEngine", ops -> ops.fitEngine = MCOptions.FitEngineType.BOBYQA);
+		changes.put("parameterSpace", ops -> ops.parameterSpace = ParameterSpace.LOG);
+		changes.put("convergenceWindow", ops -> ops.convergenceWindow += 1);
+		changes.put("deterministic", ops -> ops.deterministic = true);
+		changes.put("coarseToFine", ops -> ops.coarseToFine = true);
+		changes.put("errorMetric", ops -> ops.errorMetric = MCErrorMetric.MetricType.HUBER);
+		changes.put("errorWeighting", ops -> ops.errorWeighting = MCErrorMetric.Weighting.INV_F);
+		changes.put("huberDelta", ops -> ops.huberDelta += 0.1);
+
+		for (Map.Entry<String, Consumer<MCOptions>> change : changes.entrySet()) {
+			MCFitCache cache = new MCFitCache(4);
+			cache.put(data, new MCOptions(), fitted());
+			MCOptions ops = new MCOptions();
+			change.getValue().accept(ops);
+			assertNull(change.getKey(), cache.get(data, ops));
+		}
+	}
+
+	@Test
+	public void valuesNotUsedByTheFitAreIgnored() {
+		MCFitCache cache = new MCFitCache(4);
+		cache.put(data, new MCOptions(), fitted());
+		MCOptions ops = new MCOptions();
+		// the seed only matters in deterministic mode
+		ops.randomSeed += 1;
+		// the levels only matter with the coarse-to-fine schedule
+		ops.coarseLevels = new int[] { 32 };
+		assertNotNull(cache.get(data, ops));
+	}
+
+	@Test
+	public void seedAndLevelsAreKeyedWhenUsed() {
+		MCOptions base = new MCOptions();
+		base.deterministic = true;
+		base.coarseToFine = true;
+		MCFitCache cache = new MCFitCache(4);
+		cache.put(data, base, fitted());
+
+		MCOptions seed = new MCOptions();
+		seed.deterministic = true;
+		seed.coarseToFine = true;
+		seed.randomSeed += 1;
+		assertNull(cache.get(data, seed));
+
+		MCOptions levels = new MCOptions();
+		levels.deterministic = true;
+		levels.coarseToFine = true;
+		levels.coarseLevels = new int[] { 32 };
+		assertNull(cache.get(data, levels));
+	}
+
+	@Test
+	public void leastRecentlyUsedIsEvicted() throws IOException {
+		MCFitCache cache = new MCFitCache(1);
+		cache.put(data, new MCOptions(), fitted());
+		cache.put(measurement(50.0), new MCOptions(), fitted());
+		assertEquals(1, cache.size());
+		assertNull(cache.get(data, new MCOptions()));
+	}
+
+	@Test
+	public void entriesArePersisted() throws IOException {
+		File file = File.createTempFile("ezrlc", ".cache");
+		file.deleteOnExit();
+		new MCFitCache(4, file).put(data, new MCOptions(), fitted());
+
+		MCEqCircuit eqc = new MCFitCache(4, file).get(data, new MCOptions());
+		assertNotNull(eqc);
+		assertArrayEquals(PARAMS, eqc.getParameters(), 0.0);
+	}
+
+}
@@ -0,0 +1,133 @@
+package ezrlc.ModelCalculation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import ezrlc.util.Complex;
+import ezrlc.util.ComplexArrayView;
+import ezrlc.util.DoubleArrayView;
+
+/**
+ * Bounds of the frequency window
+ * 
+ * @author noah
+ *
+ */
+public class MCFrequencyWindowTest {
+
+	// 1 MHz to 10 MHz in 1 MHz steps
+	private static final double[] F = { 1e6, 2e6, 3e6, 4e6, 5e6, 6e6, 7e6, 8e6, 9e6, 10e6 };
+
+	private static MCOptions optionsOf(double fMin, double fMax) {
+		MCOptions ops = new MCOptions();
+		ops.fMinAuto = false;
+		ops.fMin = fMin;
+		ops.fMaxAuto = false;
+		ops.fMax = fMax;
+		return ops;
+	}
+
+	private static MCFrequencyWindow window(Double fMin, Double fMax) {
+		MCOptions ops = new MCOptions();
+		if (fMin != null) {
+			ops.fMinAuto = false;
+			ops.fMin = fMin;
+		}
+		if (fMax != null) {
+			ops.fMaxAuto = false;
+			ops.fMax = fMax;
+		}
+		return new MCFrequencyWindow(ops, F);
+	}
+
+	@Test
+	public void autoLimitsKeepAllPoints() {
+		MCFrequencyWindow w = window(null, null);
+		assertEquals(0, w.getOffset());
+		assertEquals(F.length, w.getLength());
+	}
+
+	@Test
+	public void limitsOnAPointIncludeIt() {
+		MCFrequencyWindow w = window(2e6, 4e6);
+		assertEquals(1, w.getOffset());
+		assertEquals(3, w.getLength());
+		assertArrayEquals(new double[] { 2e6, 3e6, 4e6 }, w.getF(MCUtil.DATA_FORMAT.HZ), 0.0);
+	}
+
+	@Test
+	public void limitsBetweenPointsKeepThePointsInside() {
+		MCFrequencyWindow w = window(2.5e6, 4.5e6);
+		assertEquals(2, w.getOffset());
+		assertEquals(2, w.getLength());
+	}
+
+	@Test
+	public void singleLimit() {
+		MCFrequencyWindow low = window(9e6, null);
+		assertEquals(8, low.getOffset());
+		assertEquals(2, low.getLength());
+		MCFrequencyWindow high = window(null, 1e6);
+		assertEquals(0, high.getOffset());
+		assertEquals(1, high.getLength());
+	}
+
+	@Test
+	public void windowOutsideTheDataIsEmpty() {
+		assertEquals(0, window(20e6, 30e6).getLength());
+		assertEquals(0, window(1e3, 1e5).getLength());
+	}
+
+	@Test
+	public void invertedLimitsAreInvalid() {
+		MCFrequencyWindow w = window(5e6, 2e6);
+		assertFalse(w.isValid());
+		assertEquals(0, w.getLength());
+		assertTrue(window(2e6, 2e6).isValid());
+	}
+
+	@Test
+	public void omegaMatchesHertz() {
+		MCFrequencyWindow w = window(3e6, 7e6);
+		double[] hz = w.getF(MCUtil.DATA_FORMAT.HZ);
+		double[] omega = w.getF(MCUtil.DATA_FORMAT.OMEGA);
+		assertEquals(hz.length, omega.length);
+		for (int i = 0; i < hz.length; i++) {
+			assertEquals(2.0 * Math.PI * hz[i], omega[i], 0.0);
+		}
+		assertArrayEquals(omega, MCUtil.applyMCOpsToF(optionsOf(3e6, 7e6), F, MCUtil.DATA_FORMAT.OMEGA), 0.0);
+	}
+
+	@Test
+	public void sliceAndViewCutTheSamePoints() {
+		Complex[] z = new Complex[F.length];
+		double[] d = new double[F.length];
+		for (int i = 0; i < F.length; i++) {
+			z[i] = new Complex(i, -i);
+			d[i] = i;
+		}
+		MCFrequencyWindow w = window(3e6, 7e6);
+		Complex[] sliced = w.slice(z);
+		ComplexArrayView view = w.view(new ComplexArrayView(z));
+		assertEquals(sliced.length, view.length());
+		for (int i = 0; i < sliced.length; i++) {
+			assertSame(z[i + 2], sliced[i]);
+			assertSame(z[i + 2], view.get(i));
+		}
+		assertArrayEquals(new double[] { 2, 3, 4, 5, 6 }, w.slice(d), 0.0);
+	}
+
+	@Test
+	public void frequencyViewGivesTheSameWindow() {
+		MCOptions ops = optionsOf(3e6, 7e6);
+		MCFrequencyWindow w = new MCFrequencyWindow(ops, new DoubleArrayView(F));
+		assertEquals(2, w.getOffset());
+		assertEquals(5, w.getLength());
+	}
+
+}
@@ -0,0 +1,104 @@
+package ezrlc.ModelCalculation;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ezrlc.ModelCalculation.MCEqCircuit.CircuitType;
+import ezrlc.ModelCalculation.MCSearchSpace.ParameterSpace;
+
+/**
+ * Round trips between the circuit parameters and the search vector
+ * 
+ * @author noah
+ *
+ */
+public class MCSearchSpaceTest {
+
+	private static final double[] PARAMS = { 50.0, 1e6, 0.5, 2.0, 1e-6, 1e-12, 1e-9 };
+
+	/**
+	 * Returns the parameters of the circuit type, unused ones are zero
+	 */
+	private static double[] used(CircuitType type, double[] p) {
+		return MCUtil.topo2Param(type, MCUtil.shortenParam(type, p));
+	}
+
+	private static void assertClose(String message, double[] expected, double[] actual) {
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(message + " parameter " + i, expected[i], actual[i], 1e-12 * Math.abs(expected[i]));
+		}
+	}
+
+	@Test
+	public void startMapsBackToTheInitialGuess() {
+		for (ParameterSpace ps : ParameterSpace.values()) {
+			for (CircuitType type : CircuitType.values()) {
+				MCSearchSpace space = new MCSearchSpace(type, PARAMS, ps);
+				assertClose(ps + " " + type, used(type, PARAMS), space.toParameters(space.getStart()));
+			}
+		}
+	}
+
+	@Test
+	public void everyUsedParameterIsKeptByTheTopologyMapping() {
+		for (CircuitType type : CircuitType.values()) {
+			double[] p = used(type, PARAMS);
+			for (int i = 0; i < 7; i++) {
+				boolean isUsed = MCUtil.parameter2TopoIdx[type.ordinal()][i] < 7;
+				assertEquals(type + " parameter " + i, isUsed ? PARAMS[i] : 0.0, p[i], 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void logSpaceKeepsNonPositiveParameters() {
+		double[] p = { -3.0, 0.0, 0.0, 0.0, 0.0, 1e-12, 0.0 };
+		MCSearchSpace space = new MCSearchSpace(CircuitType.MODEL4, p, ParameterSpace.LOG);
+		double[] res = space.toParameters(space.getStart());
+		assertEquals(-3.0, res[0], 0.0);
+		assertEquals(0.0, res[4], 0.0);
+		assertEquals(1e-12, res[5], 1e-24);
+	}
+
+	@Test
+	public void fixedParametersAreNotSearched() {
+		boolean[] fixed = new boolean[7];
+		fixed[4] = true;
+		MCSearchSpace space = new MCSearchSpace(CircuitType.MODEL4, PARAMS, ParameterSpace.SCALED, fixed, null, null);
+		assertEquals(2, space.getDimension());
+		double[] x = space.getStart();
+		x[0] = 2.0;
+		double[] res = space.toParameters(x);
+		assertEquals(100.0, res[0], 1e-12);
+		assertEquals(PARAMS[4], res[4], 0.0);
+	}
+
+	@Test
+	public void boundsAreApplied() {
+		double[] min = { 60.0, 0, 0, 0, 1e-9, 1e-15, 0 };
+		double[] max = { 100.0, 0, 0, 0, 1e-3, 1e-9, 0 };
+		for (ParameterSpace ps : ParameterSpace.values()) {
+			MCSearchSpace space = new MCSearchSpace(CircuitType.MODEL4, PARAMS, ps, null, min, max);
+			// the initial guess is moved into the bounds
+			assertEquals(ps.name(), 60.0, space.toParameters(space.getStart())[0], 1e-9);
+			// points outside the bounds are projected onto them
+			double[] x = space.getStart();
+			x[0] = 1e12;
+			assertEquals(ps.name(), 100.0, space.toParameters(x)[0], 1e-9);
+		}
+	}
+
+	@Test
+	public void scaleByMovesByDecades() {
+		for (ParameterSpace ps : ParameterSpace.values()) {
+			MCSearchSpace space = new MCSearchSpace(CircuitType.MODEL4, PARAMS, ps);
+			double[] x = space.scaleBy(space.getStart(), new double[] { 1.0, -1.0, 0.0 });
+			double[] res = space.toParameters(x);
+			assertEquals(ps.name(), 500.0, res[0], 1e-9);
+			assertEquals(ps.name(), 1e-7, res[4], 1e-19);
+			assertEquals(ps.name(), 1e-12, res[5], 1e-24);
+		}
+	}
+
+}